@@ -0,0 +1,64 @@
+package com.pokestore.poke_api.benchmark;
+
+import com.pokestore.poke_api.security.JwtKeyRing;
+import com.pokestore.poke_api.security.TokenRevocationList;
+import com.pokestore.poke_api.service.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput de firma y verificación de access tokens con cada algoritmo de JwtKeyRing.
+ * La verificación usa validateToken (sin la caché de tokens verificados) para medir solo la firma.
+ *
+ * Ejecutar con: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtSigningBenchmark {
+
+    @Param({"HS256", "ES256", "EdDSA"})
+    private String algorithm;
+
+    private JwtKeyRing keyRing;
+    private TokenRevocationList revocations;
+    private JwtService jwtService;
+    private UUID userId;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        keyRing = new JwtKeyRing("benchmarkSecretKeyThatIsAtLeast256BitsLong!!", algorithm, "", 0);
+        revocations = new TokenRevocationList(900_000, 1_209_600_000);
+        jwtService = new JwtService(keyRing, 900_000, 1_209_600_000, 0, 1, revocations);
+        userId = UUID.randomUUID();
+        token = jwtService.generateToken(userId, "bench@pokestore.cl", false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        revocations.stop();
+        keyRing.stop();
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtService.generateToken(userId, "bench@pokestore.cl", false);
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return jwtService.validateToken(token);
+    }
+}
@@ -0,0 +1,140 @@
+package com.pokestore.poke_api.benchmark;
+
+import com.pokestore.poke_api.dto.CreateOrderDTO;
+import com.pokestore.poke_api.dto.CreateOrderItemDTO;
+import com.pokestore.poke_api.dto.OrderDTO;
+import com.pokestore.poke_api.service.InventoryLedger;
+import com.pokestore.poke_api.service.OrderService;
+import com.pokestore.poke_api.service.OrderStatistics;
+import com.pokestore.poke_api.service.OrderStatusEvents;
+import com.pokestore.poke_api.service.SupabaseHedging;
+import com.pokestore.poke_api.service.SupabaseResilience;
+import com.pokestore.poke_api.service.SupabaseRpcOrderCreationGateway;
+import com.pokestore.poke_api.service.SupabaseService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Latencia de crear una orden con el flujo de varias llamadas a PostgREST frente a la llamada RPC única.
+ * Supabase se simula con un WebClient cuyas respuestas tardan rttMillis, de modo que la diferencia
+ * refleja la cantidad de round trips de cada flujo.
+ *
+ * Ejecutar con: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderCreationBenchmark {
+
+    private static final String SUPABASE_URL = "http://supabase.local";
+
+    @Param({"1", "5"})
+    private int rttMillis;
+
+    @Param({"1", "5"})
+    private int itemsPerOrder;
+
+    private OrderService multiCallService;
+    private OrderService rpcService;
+    private CreateOrderDTO order;
+    private String userId;
+
+    @Setup
+    public void setUp() {
+        userId = UUID.randomUUID().toString();
+        List<UUID> productIds = new ArrayList<>();
+        List<CreateOrderItemDTO> items = new ArrayList<>();
+        for (int i = 0; i < itemsPerOrder; i++) {
+            UUID productId = UUID.randomUUID();
+            productIds.add(productId);
+            items.add(new CreateOrderItemDTO(productId, 2));
+        }
+        order = new CreateOrderDTO("Av. Providencia 1234, Santiago", null, items);
+
+        WebClient webClient = WebClient.builder()
+                .baseUrl(SUPABASE_URL)
+                .exchangeFunction(request -> Mono.delay(Duration.ofMillis(rttMillis))
+                        .then(Mono.just(respond(request, productIds))))
+                .build();
+
+        StandardEnvironment environment = new StandardEnvironment();
+        SupabaseService supabaseService = new SupabaseService(webClient, SUPABASE_URL,
+                new SupabaseResilience(environment), new SupabaseHedging(environment), 1000);
+
+        // Sin reservas de stock: se mide solo el costo de las llamadas a Supabase
+        InventoryLedger inventoryLedger = new InventoryLedger(supabaseService, false, 1, 1000, 5);
+        OrderStatusEvents statusEvents = new OrderStatusEvents(256);
+        OrderStatistics statistics = new OrderStatistics(supabaseService, "UTC", 60);
+
+        multiCallService = new OrderService(supabaseService, Optional.empty(), inventoryLedger, statusEvents,
+                statistics, Optional.empty());
+        rpcService = new OrderService(supabaseService,
+                Optional.of(new SupabaseRpcOrderCreationGateway(supabaseService, "create_order_with_items")),
+                inventoryLedger, statusEvents, statistics, Optional.empty());
+    }
+
+    @Benchmark
+    public OrderDTO multiCall() {
+        return multiCallService.createOrder(userId, order).block();
+    }
+
+    @Benchmark
+    public OrderDTO rpc() {
+        return rpcService.createOrder(userId, order).block();
+    }
+
+    // ============ Supabase simulado ============
+
+    private ClientResponse respond(ClientRequest request, List<UUID> productIds) {
+        String path = request.url().getPath();
+        String orderId = UUID.randomUUID().toString();
+        String body;
+        if (path.endsWith("/rpc/create_order_with_items")) {
+            body = orderJson(orderId).replace("}", ",\"items\":" + itemsJson(orderId, productIds) + "}");
+        } else if (path.endsWith("/products")) {
+            body = productIds.stream()
+                    .map(id -> "{\"id\":\"" + id + "\",\"price\":9990}")
+                    .collect(Collectors.joining(",", "[", "]"));
+        } else if (path.endsWith("/order_items")) {
+            body = itemsJson(orderId, productIds);
+        } else {
+            body = "[" + orderJson(orderId) + "]";
+        }
+        return ClientResponse.create(HttpStatus.OK)
+                .header("Content-Type", "application/json")
+                .body(body)
+                .build();
+    }
+
+    private String orderJson(String orderId) {
+        return "{\"id\":\"" + orderId + "\",\"user_id\":\"" + userId + "\",\"status\":\"pending\","
+                + "\"total_amount\":" + (9990 * 2 * itemsPerOrder) + ",\"shipping_address\":\"Av. Providencia 1234, Santiago\"}";
+    }
+
+    private static String itemsJson(String orderId, List<UUID> productIds) {
+        return productIds.stream()
+                .map(id -> "{\"id\":\"" + UUID.randomUUID() + "\",\"order_id\":\"" + orderId + "\",\"product_id\":\"" + id
+                        + "\",\"quantity\":2,\"unit_price\":9990,\"subtotal\":19980}")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+}
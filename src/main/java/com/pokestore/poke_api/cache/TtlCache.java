@@ -0,0 +1,178 @@
+package com.pokestore.poke_api.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Caché en memoria con expiración por entrada (TTL) y tamaño máximo.
+ * Cuando se supera el tamaño máximo se expulsa la entrada usada hace más tiempo (LRU).
+ * Opcionalmente se indica qué valores se pueden expulsar: los demás solo salen al expirar, y si
+ * ninguno se puede expulsar la caché supera temporalmente su tamaño máximo (contador overflows).
+ * Es thread-safe y lleva contadores de aciertos, fallos y expulsiones.
+ */
+public class TtlCache<K, V> {
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    public TtlCache(Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, value -> true);
+    }
+
+    public TtlCache(Duration ttl, int maxEntries, Predicate<V> evictable) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries debe ser mayor que 0");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= TtlCache.this.maxEntries) {
+                    return false;
+                }
+                long now = System.currentTimeMillis();
+                if (canEvict(eldest.getValue(), now)) {
+                    evictions.increment();
+                    return true;
+                }
+                // La más antigua no se puede expulsar: se expulsa la siguiente en orden LRU que sí
+                Iterator<Entry<V>> candidates = values().iterator();
+                while (candidates.hasNext()) {
+                    if (canEvict(candidates.next(), now)) {
+                        candidates.remove();
+                        evictions.increment();
+                        return false;
+                    }
+                }
+                overflows.increment();
+                return false;
+            }
+
+            private boolean canEvict(Entry<V> entry, long now) {
+                return entry.expiresAt() <= now || evictable.test(entry.value());
+            }
+        };
+    }
+
+    /**
+     * Obtiene un valor vigente o null si no existe o ya expiró
+     */
+    public V get(K key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > now) {
+                    hits.increment();
+                    return entry.value();
+                }
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Guarda un valor con el TTL por defecto de la caché
+     */
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * Guarda un valor que expira en el instante indicado (epoch millis)
+     */
+    public void put(K key, V value, long expiresAtMillis) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAtMillis));
+        }
+    }
+
+    /**
+     * Guarda el valor solo si no hay uno vigente. Retorna el valor vigente previo o null.
+     */
+    public V putIfAbsent(K key, V value) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                return entry.value();
+            }
+            entries.put(key, new Entry<>(value, now + ttlMillis));
+            return null;
+        }
+    }
+
+    public void remove(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Elimina la entrada solo si sigue asociada al valor indicado
+     */
+    public void remove(K key, V value) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.value() == value) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    public void removeIf(Predicate<K> keyPredicate) {
+        synchronized (entries) {
+            entries.keySet().removeIf(keyPredicate);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getOverflows() { return overflows.sum(); }
+
+    /**
+     * Resumen de contadores para exponer como métricas
+     */
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return Map.of(
+                "size", size(),
+                "maxEntries", maxEntries,
+                "hits", h,
+                "misses", m,
+                "evictions", evictions.sum(),
+                "overflows", overflows.sum(),
+                "hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m)
+        );
+    }
+}
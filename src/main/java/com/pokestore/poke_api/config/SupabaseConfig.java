@@ -1,9 +1,17 @@
 package com.pokestore.poke_api.config;
 
+import com.pokestore.poke_api.metrics.ConnectionPoolMetricsRegistry;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class SupabaseConfig {
@@ -14,10 +22,62 @@ public class SupabaseConfig {
     @Value("${supabase.api.key}")
     private String supabaseApiKey;
 
+    // Pool de conexiones
+    @Value("${supabase.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${supabase.http.pending-acquire-max-count:500}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${supabase.http.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+
+    @Value("${supabase.http.max-idle-seconds:30}")
+    private long maxIdleSeconds;
+
+    @Value("${supabase.http.max-life-seconds:300}")
+    private long maxLifeSeconds;
+
+    @Value("${supabase.http.evict-interval-seconds:30}")
+    private long evictIntervalSeconds;
+
+    // Timeouts y protocolo
+    @Value("${supabase.http.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${supabase.http.response-timeout-ms:5000}")
+    private long responseTimeoutMs;
+
+    @Value("${supabase.http.http2-enabled:true}")
+    private boolean http2Enabled;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider supabaseConnectionProvider(ConnectionPoolMetricsRegistry poolMetricsRegistry) {
+        return ConnectionProvider.builder("supabase")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(acquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeSeconds))
+                .evictInBackground(Duration.ofSeconds(evictIntervalSeconds))
+                .metrics(true, () -> poolMetricsRegistry)
+                .build();
+    }
+
     @Bean
-    public WebClient supabaseWebClient() {
+    public WebClient supabaseWebClient(ConnectionProvider supabaseConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(supabaseConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+
+        // HTTP/2 solo se negocia sobre TLS (ALPN); con HTTP/1.1 como alternativa
+        if (http2Enabled && supabaseUrl.startsWith("https://")) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+
         return WebClient.builder()
                 .baseUrl(supabaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .defaultHeader("apikey", supabaseApiKey)
                 .defaultHeader("Authorization", "Bearer " + supabaseApiKey)
                 .defaultHeader("Content-Type", "application/json")
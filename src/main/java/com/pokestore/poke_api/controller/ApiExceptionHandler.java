@@ -0,0 +1,108 @@
+package com.pokestore.poke_api.controller;
+
+import com.pokestore.poke_api.service.IdempotencyKeyReusedException;
+import com.pokestore.poke_api.service.InsufficientStockException;
+import com.pokestore.poke_api.service.OrderIntakeUnavailableException;
+import com.pokestore.poke_api.service.PasswordHashingSaturatedException;
+import com.pokestore.poke_api.service.SupabaseUnavailableException;
+import com.pokestore.poke_api.service.SupabaseWriteOutcomeUnknownException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Manejo de errores comunes a todos los controllers.
+ * Los errores propios de cada endpoint se siguen resolviendo en el controller correspondiente.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    /**
+     * Supabase caído, lento o con el circuito abierto: 503 en lugar de un falso "no encontrado"
+     */
+    @ExceptionHandler(SupabaseUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleSupabaseUnavailable(SupabaseUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", RETRY_AFTER_SECONDS)
+                .body(Map.of(
+                        "error", "Service Unavailable",
+                        "message", "Servicio temporalmente no disponible, intenta nuevamente",
+                        "status", 503
+                ));
+    }
+
+    /**
+     * Escritura sin respuesta a tiempo: pudo aplicarse, así que no se invita a reintentar a ciegas
+     */
+    @ExceptionHandler(SupabaseWriteOutcomeUnknownException.class)
+    public ResponseEntity<Map<String, Object>> handleWriteOutcomeUnknown(SupabaseWriteOutcomeUnknownException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of(
+                        "error", "Gateway Timeout",
+                        "message", "No se pudo confirmar la operación; verifica el resultado antes de reintentar",
+                        "status", 504
+                ));
+    }
+
+    /**
+     * Demasiados logins/registros simultáneos: se rechaza rápido en lugar de encolar sin límite
+     */
+    @ExceptionHandler(PasswordHashingSaturatedException.class)
+    public ResponseEntity<Map<String, Object>> handlePasswordHashingSaturated(PasswordHashingSaturatedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(Map.of(
+                        "error", "Service Unavailable",
+                        "message", "Demasiadas solicitudes de autenticación, intenta nuevamente",
+                        "status", 503
+                ));
+    }
+
+    /**
+     * Sin stock para reservar la orden completa: 409 indicando el producto que no alcanza
+     */
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<Map<String, Object>> handleInsufficientStock(InsufficientStockException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of(
+                        "error", "Conflict",
+                        "message", "Stock insuficiente",
+                        "productId", e.getProductId(),
+                        "requested", e.getRequested(),
+                        "available", e.getAvailable(),
+                        "status", 409
+                ));
+    }
+
+    /**
+     * Idempotency-Key reutilizado con otro cuerpo: no se repite la orden original ni se crea una nueva
+     */
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<Map<String, Object>> handleIdempotencyKeyReused(IdempotencyKeyReusedException e) {
+        return ResponseEntity.status(422)
+                .body(Map.of(
+                        "error", "Unprocessable Entity",
+                        "message", e.getMessage(),
+                        "status", 422
+                ));
+    }
+
+    /**
+     * Journal de órdenes saturado: el cliente reintenta en un momento
+     */
+    @ExceptionHandler(OrderIntakeUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleOrderIntakeUnavailable(OrderIntakeUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(Map.of(
+                        "error", "Service Unavailable",
+                        "message", "Demasiadas órdenes en proceso, intenta nuevamente",
+                        "status", 503
+                ));
+    }
+}
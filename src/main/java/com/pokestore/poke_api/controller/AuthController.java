@@ -3,8 +3,11 @@ package com.pokestore.poke_api.controller;
 import com.pokestore.poke_api.dto.AuthResponseDTO;
 import com.pokestore.poke_api.dto.CreateUserDTO;
 import com.pokestore.poke_api.dto.LoginDTO;
+import com.pokestore.poke_api.security.AuthRateLimiter;
+import com.pokestore.poke_api.security.JwtPrincipal;
 import com.pokestore.poke_api.service.AuthService;
 import com.pokestore.poke_api.service.JwtService;
+import io.jsonwebtoken.JwtException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,6 +15,8 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
@@ -25,10 +30,12 @@ public class AuthController {
 
     private final AuthService authService;
     private final JwtService jwtService;
+    private final AuthRateLimiter rateLimiter;
 
-    public AuthController(AuthService authService, JwtService jwtService) {
+    public AuthController(AuthService authService, JwtService jwtService, AuthRateLimiter rateLimiter) {
         this.authService = authService;
         this.jwtService = jwtService;
+        this.rateLimiter = rateLimiter;
     }
 
     @Operation(
@@ -52,6 +59,14 @@ public class AuthController {
                             mediaType = "application/json",
                             schema = @Schema(implementation = AuthResponseDTO.class)
                     )
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Demasiados intentos desde la misma IP o para el mismo email, reintentar después de Retry-After"
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Demasiadas solicitudes de autenticación simultáneas, reintentar más tarde"
             )
     })
     @PostMapping("/register")
@@ -61,7 +76,12 @@ public class AuthController {
                     required = true,
                     content = @Content(schema = @Schema(implementation = CreateUserDTO.class))
             )
-            @RequestBody CreateUserDTO createUserDTO) {
+            @RequestBody CreateUserDTO createUserDTO,
+            HttpServletRequest request) {
+        AuthRateLimiter.Decision decision = rateLimiter.tryAcquire(request, createUserDTO.getEmail());
+        if (!decision.allowed()) {
+            return Mono.just(tooManyAttempts(decision));
+        }
         return authService.register(createUserDTO)
                 .map(response -> {
                     if (response.isSuccess()) {
@@ -92,6 +112,14 @@ public class AuthController {
                             mediaType = "application/json",
                             schema = @Schema(implementation = AuthResponseDTO.class)
                     )
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Demasiados intentos desde la misma IP o para el mismo email, reintentar después de Retry-After"
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Demasiadas solicitudes de autenticación simultáneas, reintentar más tarde"
             )
     })
     @PostMapping("/login")
@@ -101,7 +129,12 @@ public class AuthController {
                     required = true,
                     content = @Content(schema = @Schema(implementation = LoginDTO.class))
             )
-            @RequestBody LoginDTO loginDTO) {
+            @RequestBody LoginDTO loginDTO,
+            HttpServletRequest request) {
+        AuthRateLimiter.Decision decision = rateLimiter.tryAcquire(request, loginDTO.getEmail());
+        if (!decision.allowed()) {
+            return Mono.just(tooManyAttempts(decision));
+        }
         return authService.login(loginDTO)
                 .map(response -> {
                     if (response.isSuccess()) {
@@ -111,6 +144,69 @@ public class AuthController {
                 });
     }
 
+    @Operation(
+            summary = "Renovar token",
+            description = "Canjea un refresh token por un nuevo token JWT de vida corta y un nuevo refresh token. " +
+                    "El refresh token usado deja de ser válido."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Tokens renovados",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AuthResponseDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Refresh token no proporcionado"
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Refresh token inválido, expirado, revocado o usuario inexistente",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AuthResponseDTO.class)
+                    )
+            )
+    })
+    @PostMapping("/refresh")
+    public Mono<ResponseEntity<AuthResponseDTO>> refresh(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Refresh token obtenido en login, registro o un refresh anterior",
+                    required = true
+            )
+            @RequestBody Map<String, String> request) {
+        String refreshToken = request.get("refreshToken");
+
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().body(AuthResponseDTO.error("Refresh token no proporcionado")));
+        }
+
+        return authService.refresh(refreshToken)
+                .map(response -> {
+                    if (response.isSuccess()) {
+                        return ResponseEntity.ok(response);
+                    }
+                    return ResponseEntity.status(401).body(response);
+                });
+    }
+
+    @Operation(
+            summary = "Claves públicas (JWKS)",
+            description = "Publica las claves públicas de firma de los tokens (ES256/EdDSA) en formato JWKS, " +
+                    "para que otros servicios puedan verificarlos. Las claves HMAC no se publican."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Conjunto de claves JWK"
+    )
+    @GetMapping("/jwks")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok(jwtService.getJwks());
+    }
+
     @Operation(
             summary = "Validar token JWT",
             description = "Verifica si un token JWT es válido y no ha expirado"
@@ -138,19 +234,17 @@ public class AuthController {
         }
 
         try {
-            if (jwtService.isTokenValid(token)) {
-                String userId = jwtService.getUserIdFromToken(token);
-                return ResponseEntity.ok(Map.of(
-                        "valid", true,
-                        "userId", userId,
-                        "message", "Token válido"
-                ));
-            } else {
-                return ResponseEntity.ok(Map.of(
-                        "valid", false,
-                        "message", "Token inválido o expirado"
-                ));
-            }
+            JwtPrincipal principal = jwtService.verify(token);
+            return ResponseEntity.ok(Map.of(
+                    "valid", true,
+                    "userId", principal.userId(),
+                    "message", "Token válido"
+            ));
+        } catch (JwtException e) {
+            return ResponseEntity.ok(Map.of(
+                    "valid", false,
+                    "message", "Token inválido o expirado"
+            ));
         } catch (Exception e) {
             return ResponseEntity.ok(Map.of(
                     "valid", false,
@@ -247,4 +341,10 @@ public class AuthController {
                         "available", !exists
                 )));
     }
+
+    private ResponseEntity<AuthResponseDTO> tooManyAttempts(AuthRateLimiter.Decision decision) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", String.valueOf(decision.retryAfterSeconds()))
+                .body(AuthResponseDTO.error("Demasiados intentos, intenta nuevamente más tarde"));
+    }
 }
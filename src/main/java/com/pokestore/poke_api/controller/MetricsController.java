@@ -0,0 +1,48 @@
+package com.pokestore.poke_api.controller;
+
+import com.pokestore.poke_api.metrics.MetricsSource;
+import com.pokestore.poke_api.security.AdminOnly;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/metrics")
+@Tag(name = "Métricas", description = "Contadores internos de la API (cachés, conexiones, limitadores)")
+public class MetricsController {
+
+    private final List<MetricsSource> sources;
+
+    public MetricsController(List<MetricsSource> sources) {
+        this.sources = sources;
+    }
+
+    @Operation(
+            summary = "Obtener métricas internas",
+            description = "Retorna los contadores de todos los componentes instrumentados. " +
+                    "**Requiere rol de administrador.**"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Métricas actuales"),
+            @ApiResponse(responseCode = "401", description = "Token de autenticación requerido"),
+            @ApiResponse(responseCode = "403", description = "Se requiere rol de administrador")
+    })
+    @AdminOnly
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        for (MetricsSource source : sources) {
+            metrics.put(source.getMetricsName(), source.getMetrics());
+        }
+        return ResponseEntity.ok(metrics);
+    }
+}
@@ -2,10 +2,14 @@ package com.pokestore.poke_api.controller;
 
 import com.pokestore.poke_api.dto.CreateOrderDTO;
 import com.pokestore.poke_api.dto.OrderDTO;
+import com.pokestore.poke_api.dto.OrderStatusEventDTO;
 import com.pokestore.poke_api.dto.UpdateOrderStatusDTO;
 import com.pokestore.poke_api.security.AdminOnly;
 import com.pokestore.poke_api.security.Authenticated;
+import com.pokestore.poke_api.service.OrderIdempotencyStore;
 import com.pokestore.poke_api.service.OrderService;
+import com.pokestore.poke_api.service.OrderStatistics;
+import com.pokestore.poke_api.service.OrderStatusEvents;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -15,10 +19,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -27,17 +39,35 @@ import java.util.Map;
 @Tag(name = "Órdenes", description = "Gestión de órdenes de compra")
 public class OrderController {
 
+    private static final Duration SSE_TIMEOUT_MARGIN = Duration.ofMinutes(1);
+
     private final OrderService orderService;
+    private final OrderIdempotencyStore idempotencyStore;
+    private final OrderStatusEvents statusEvents;
+    private final OrderStatistics statistics;
+    private final Duration heartbeatInterval;
+    private final Duration maxStreamDuration;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIdempotencyStore idempotencyStore,
+                           OrderStatusEvents statusEvents, OrderStatistics statistics,
+                           @Value("${orders.events.heartbeat-seconds:15}") long heartbeatSeconds,
+                           @Value("${orders.events.max-connection-minutes:9}") long maxConnectionMinutes) {
         this.orderService = orderService;
+        this.idempotencyStore = idempotencyStore;
+        this.statusEvents = statusEvents;
+        this.statistics = statistics;
+        this.heartbeatInterval = Duration.ofSeconds(heartbeatSeconds);
+        this.maxStreamDuration = Duration.ofMinutes(maxConnectionMinutes);
     }
 
     // ============ ENDPOINTS PARA USUARIOS AUTENTICADOS ============
 
     @Operation(
             summary = "Crear nueva orden",
-            description = "Crea una nueva orden de compra para el usuario autenticado. **Requiere autenticación.**"
+            description = "Crea una nueva orden de compra para el usuario autenticado. **Requiere autenticación.** " +
+                    "Con el header Idempotency-Key los reintentos con la misma clave retornan la orden original " +
+                    "en lugar de crear otra. Con orders.intake.mode=journal la orden se registra localmente, " +
+                    "se responde 202 con la orden provisoria (sin total ni items) y se crea en segundo plano."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -45,8 +75,16 @@ public class OrderController {
                     description = "Orden creada exitosamente",
                     content = @Content(schema = @Schema(implementation = OrderDTO.class))
             ),
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Orden aceptada (modo journal); el header Location indica dónde consultarla",
+                    content = @Content(schema = @Schema(implementation = OrderDTO.class))
+            ),
             @ApiResponse(responseCode = "400", description = "Datos inválidos o carrito vacío"),
-            @ApiResponse(responseCode = "401", description = "Token de autenticación requerido")
+            @ApiResponse(responseCode = "401", description = "Token de autenticación requerido"),
+            @ApiResponse(responseCode = "409", description = "Stock insuficiente para algún producto"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key ya usado con una orden distinta"),
+            @ApiResponse(responseCode = "503", description = "Demasiadas órdenes en espera de ser registradas (modo journal)")
     })
     @Authenticated
     @PostMapping
@@ -57,12 +95,31 @@ public class OrderController {
                     content = @Content(schema = @Schema(implementation = CreateOrderDTO.class))
             )
             @RequestBody CreateOrderDTO createOrderDTO,
+            @Parameter(
+                    description = "Clave única generada por el cliente para reintentar la creación sin duplicar la orden",
+                    example = "3f2c9a1e-8b7d-4c6e-9f10-2a5b7c8d9e0f"
+            )
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             HttpServletRequest request) {
         
         String userId = (String) request.getAttribute("userId");
-        
-        return orderService.createOrder(userId, createOrderDTO)
-                .map(ResponseEntity::ok)
+
+        Mono<OrderDTO> created = idempotencyKey == null
+                ? orderService.createOrder(userId, createOrderDTO)
+                : idempotencyStore.execute(userId, idempotencyKey, createOrderDTO,
+                        () -> orderService.createOrder(userId, createOrderDTO),
+                        orderId -> orderService.resumeOrder(orderId, userId, createOrderDTO));
+
+        return created
+                .map(order -> {
+                    if (orderService.isAsynchronousIntake()) {
+                        // Registrada en el journal: se creará en Supabase en segundo plano
+                        return ResponseEntity.accepted()
+                                .location(URI.create("/api/orders/" + order.getId()))
+                                .body(order);
+                    }
+                    return ResponseEntity.ok(order);
+                })
                 .onErrorResume(IllegalArgumentException.class, e ->
                         Mono.just(ResponseEntity.badRequest().build()));
     }
@@ -88,6 +145,86 @@ public class OrderController {
                 .map(ResponseEntity::ok);
     }
 
+    @Operation(
+            summary = "Obtener mis órdenes en streaming (NDJSON)",
+            description = "Emite las órdenes del usuario autenticado como JSON delimitado por saltos de línea. " +
+                    "Usar con ?format=ndjson. **Requiere autenticación.**"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Stream de órdenes del usuario",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = OrderDTO.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "401", description = "Token de autenticación requerido")
+    })
+    @Authenticated
+    @GetMapping(value = "/my", params = "format=ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<OrderDTO> streamMyOrders(HttpServletRequest request) {
+        String userId = (String) request.getAttribute("userId");
+
+        return orderService.streamOrdersByUserId(userId);
+    }
+
+    @Operation(
+            summary = "Stream de cambios de estado (SSE)",
+            description = "Mantiene abierta una conexión Server-Sent Events que emite un evento 'order-status' " +
+                    "cada vez que cambia el estado de una orden del usuario (o de cualquier orden, para admins). " +
+                    "Reemplaza el polling de /my: se recargan las órdenes una vez y luego se aplican los eventos. " +
+                    "La conexión se cierra periódicamente y el cliente (EventSource) se reconecta solo. " +
+                    "**Requiere autenticación.**"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Stream de eventos de estado",
+                    content = @Content(
+                            mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = OrderStatusEventDTO.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "401", description = "Token de autenticación requerido")
+    })
+    @Authenticated
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStatusChanges(HttpServletRequest request) {
+        String userId = (String) request.getAttribute("userId");
+        Boolean isAdmin = (Boolean) request.getAttribute("isAdmin");
+
+        Flux<SseEmitter.SseEventBuilder> events = statusEvents.subscribe(userId, Boolean.TRUE.equals(isAdmin))
+                .map(event -> SseEmitter.event()
+                        .name("order-status")
+                        .reconnectTime(1000)
+                        .data(event, MediaType.APPLICATION_JSON));
+
+        // Comentarios periódicos para que proxies y balanceadores no cierren la conexión inactiva
+        Flux<SseEmitter.SseEventBuilder> heartbeats = Flux.interval(heartbeatInterval)
+                .map(tick -> SseEmitter.event().comment("heartbeat"));
+
+        // El timeout asíncrono es solo de esta conexión (el resto de endpoints mantiene el global);
+        // el stream se cierra antes y el cliente se reconecta
+        SseEmitter emitter = new SseEmitter(maxStreamDuration.plus(SSE_TIMEOUT_MARGIN).toMillis());
+        Disposable subscription = Flux.merge(events, heartbeats)
+                .take(maxStreamDuration)
+                .subscribe(event -> {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException e) {
+                        // Cliente desconectado: al cerrar el emitter, onCompletion libera la suscripción
+                        emitter.completeWithError(e);
+                    } catch (IllegalStateException e) {
+                        // El emitter ya se cerró (timeout o error); la suscripción se está liberando
+                    }
+                }, emitter::completeWithError, emitter::complete);
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        return emitter;
+    }
+
     @Operation(
             summary = "Obtener orden por ID",
             description = "Obtiene los detalles de una orden específica. " +
@@ -129,7 +266,7 @@ public class OrderController {
     @Operation(
             summary = "Cancelar orden",
             description = "Cancela una orden. Los usuarios solo pueden cancelar sus órdenes en estado 'pending' o 'paid'. " +
-                    "Los admins pueden cancelar cualquier orden. **Requiere autenticación.**"
+                    "Los admins pueden cancelar cualquier orden que aún no se haya enviado. **Requiere autenticación.**"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -167,7 +304,9 @@ public class OrderController {
 
     @Operation(
             summary = "Obtener todas las órdenes",
-            description = "Obtiene todas las órdenes del sistema. **Requiere rol de administrador.**"
+            description = "Obtiene todas las órdenes del sistema. " +
+                    "Admite paginación por cursor (limit + after, con el siguiente cursor en X-Next-Cursor) " +
+                    "o por rango con el header Range: items=0-49. **Requiere rol de administrador.**"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -180,11 +319,74 @@ public class OrderController {
     })
     @AdminOnly
     @GetMapping
-    public Mono<ResponseEntity<List<OrderDTO>>> getAllOrders() {
+    public Mono<ResponseEntity<List<OrderDTO>>> getAllOrders(
+            @Parameter(description = "Cantidad máxima de órdenes a retornar", example = "50")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Cursor: ID de la última orden de la página anterior")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Rango de filas a retornar", example = "items=0-49")
+            @RequestHeader(value = "Range", required = false) String range) {
+        long[] requestedRange = PaginationSupport.parseRange(range);
+        if (requestedRange != null) {
+            return orderService.getOrdersRange(requestedRange[0], requestedRange[1])
+                    .map(PaginationSupport::rangePage);
+        }
+
+        if (PaginationSupport.isPaginated(limit, after)) {
+            if (!PaginationSupport.isValidCursor(after)) {
+                return Mono.just(ResponseEntity.<List<OrderDTO>>badRequest().build());
+            }
+            int pageSize = PaginationSupport.clampLimit(limit);
+            return orderService.getOrdersPage(after, pageSize)
+                    .map(page -> PaginationSupport.keysetPage(page, pageSize, OrderDTO::getId));
+        }
+
         return orderService.getAllOrders()
                 .map(ResponseEntity::ok);
     }
 
+    @Operation(
+            summary = "Obtener todas las órdenes en streaming (NDJSON)",
+            description = "Emite todas las órdenes con sus items como JSON delimitado por saltos de línea " +
+                    "a medida que se leen de la base de datos. Usar con ?format=ndjson. **Requiere rol de administrador.**"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Stream de órdenes",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = OrderDTO.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "401", description = "Token de autenticación requerido"),
+            @ApiResponse(responseCode = "403", description = "Se requiere rol de administrador")
+    })
+    @AdminOnly
+    @GetMapping(params = "format=ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<OrderDTO> streamAllOrders() {
+        return orderService.streamAllOrders();
+    }
+
+    @Operation(
+            summary = "Estadísticas de órdenes",
+            description = "Órdenes por estado, ingresos totales, ticket promedio e ingresos y órdenes por día " +
+                    "de los últimos días. Se calculan en memoria, sin leer las órdenes de la base de datos. " +
+                    "Las órdenes canceladas no suman ingresos. **Requiere rol de administrador.**"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estadísticas actuales"),
+            @ApiResponse(responseCode = "401", description = "Token de autenticación requerido"),
+            @ApiResponse(responseCode = "403", description = "Se requiere rol de administrador")
+    })
+    @AdminOnly
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats(
+            @Parameter(description = "Cantidad de días a incluir en el detalle diario (máximo 366)", example = "30")
+            @RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(statistics.snapshot(days));
+    }
+
     @Operation(
             summary = "Obtener órdenes de un usuario",
             description = "Obtiene todas las órdenes de un usuario específico. **Requiere rol de administrador.**"
@@ -210,7 +412,8 @@ public class OrderController {
     @Operation(
             summary = "Actualizar estado de orden",
             description = "Actualiza el estado de una orden. Estados válidos: pending, paid, processing, shipped, delivered, cancelled. " +
-                    "**Requiere rol de administrador.**"
+                    "Transiciones permitidas: pending → paid → processing → shipped → delivered, y cancelled " +
+                    "desde pending, paid o processing. **Requiere rol de administrador.**"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -219,6 +422,7 @@ public class OrderController {
                     content = @Content(schema = @Schema(implementation = OrderDTO.class))
             ),
             @ApiResponse(responseCode = "400", description = "Estado inválido"),
+            @ApiResponse(responseCode = "409", description = "El estado actual de la orden no permite la transición"),
             @ApiResponse(responseCode = "401", description = "Token de autenticación requerido"),
             @ApiResponse(responseCode = "403", description = "Se requiere rol de administrador"),
             @ApiResponse(responseCode = "404", description = "Orden no encontrada")
@@ -233,13 +437,18 @@ public class OrderController {
                     required = true,
                     content = @Content(schema = @Schema(implementation = UpdateOrderStatusDTO.class))
             )
-            @RequestBody UpdateOrderStatusDTO updateStatusDTO) {
+            @RequestBody UpdateOrderStatusDTO updateStatusDTO,
+            @Parameter(description = "Incluir los items de la orden en la respuesta", example = "true")
+            @RequestParam(defaultValue = "true") boolean includeItems) {
         
-        return orderService.updateOrderStatus(id, updateStatusDTO.getStatus())
+        return orderService.updateOrderStatus(id, updateStatusDTO.getStatus(), includeItems)
                 .map(order -> ResponseEntity.ok((Object) order))
                 .onErrorResume(IllegalArgumentException.class, e ->
                         Mono.just(ResponseEntity.badRequest()
                                 .body(Map.of("error", "Bad Request", "message", e.getMessage()))))
+                .onErrorResume(IllegalStateException.class, e ->
+                        Mono.just(ResponseEntity.status(409)
+                                .body(Map.of("error", "Conflict", "message", e.getMessage()))))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
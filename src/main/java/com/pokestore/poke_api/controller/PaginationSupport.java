@@ -0,0 +1,95 @@
+package com.pokestore.poke_api.controller;
+
+import com.pokestore.poke_api.service.SupabaseService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utilidades compartidas por los endpoints de listado paginado.
+ * Soporta paginación por cursor (limit + after) y por rango (header Range: items=0-49).
+ */
+final class PaginationSupport {
+
+    static final int MAX_LIMIT = 1000;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^items=(\\d+)-(\\d+)$");
+
+    private PaginationSupport() {
+    }
+
+    /**
+     * Interpreta un header Range del tipo "items=0-49". Retorna null si no viene o no es válido.
+     */
+    static long[] parseRange(String header) {
+        if (header == null) {
+            return null;
+        }
+        Matcher matcher = RANGE_PATTERN.matcher(header.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        long from = Long.parseLong(matcher.group(1));
+        long to = Long.parseLong(matcher.group(2));
+        if (to < from) {
+            return null;
+        }
+        // Limitar el tamaño de la página igual que con limit
+        return new long[]{from, Math.min(to, from + MAX_LIMIT - 1)};
+    }
+
+    static boolean isPaginated(Integer limit, String after) {
+        return limit != null || after != null;
+    }
+
+    /**
+     * El cursor debe ser un UUID (ID del último registro de la página anterior)
+     */
+    static boolean isValidCursor(String after) {
+        if (after == null) {
+            return true;
+        }
+        try {
+            UUID.fromString(after);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return MAX_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * Respuesta de una página por cursor; incluye X-Next-Cursor si puede haber más registros
+     */
+    static <T> ResponseEntity<List<T>> keysetPage(List<T> items, int limit, Function<T, UUID> idExtractor) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (items.size() >= limit) {
+            builder.header(NEXT_CURSOR_HEADER, idExtractor.apply(items.get(items.size() - 1)).toString());
+        }
+        return builder.body(items);
+    }
+
+    /**
+     * Respuesta 206 de una consulta por rango, propagando el Content-Range de Supabase
+     */
+    static <T> ResponseEntity<List<T>> rangePage(SupabaseService.RangeResult<T> result) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .header("Accept-Ranges", "items");
+        if (result.contentRange() != null) {
+            builder.header("Content-Range", "items " + result.contentRange());
+        }
+        return builder.body(result.items());
+    }
+}
@@ -3,6 +3,9 @@ package com.pokestore.poke_api.controller;
 import com.pokestore.poke_api.dto.CreateProductDTO;
 import com.pokestore.poke_api.dto.ProductDTO;
 import com.pokestore.poke_api.security.AdminOnly;
+import com.pokestore.poke_api.service.InventoryLedger;
+import com.pokestore.poke_api.service.PostgrestQuery;
+import com.pokestore.poke_api.service.ProductCatalogCache;
 import com.pokestore.poke_api.service.SupabaseService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,8 +16,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -25,14 +30,21 @@ import java.util.List;
 public class ProductController {
 
     private final SupabaseService supabaseService;
+    private final ProductCatalogCache catalogCache;
+    private final InventoryLedger inventoryLedger;
 
-    public ProductController(SupabaseService supabaseService) {
+    public ProductController(SupabaseService supabaseService, ProductCatalogCache catalogCache,
+                             InventoryLedger inventoryLedger) {
         this.supabaseService = supabaseService;
+        this.catalogCache = catalogCache;
+        this.inventoryLedger = inventoryLedger;
     }
 
     @Operation(
             summary = "Obtener todos los productos",
-            description = "Retorna una lista con todos los productos disponibles en el catálogo"
+            description = "Retorna una lista con todos los productos disponibles en el catálogo. " +
+                    "Admite paginación por cursor (limit + after, con el siguiente cursor en X-Next-Cursor) " +
+                    "o por rango con el header Range: items=0-49."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -49,12 +61,53 @@ public class ProductController {
             )
     })
     @GetMapping
-    public Mono<ResponseEntity<List<ProductDTO>>> getAllProducts() {
-        return supabaseService.selectAll("products", new ParameterizedTypeReference<List<ProductDTO>>() {})
+    public Mono<ResponseEntity<List<ProductDTO>>> getAllProducts(
+            @Parameter(description = "Cantidad máxima de productos a retornar", example = "50")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Cursor: ID del último producto de la página anterior")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Rango de filas a retornar", example = "items=0-49")
+            @RequestHeader(value = "Range", required = false) String range) {
+        long[] requestedRange = PaginationSupport.parseRange(range);
+        if (requestedRange != null) {
+            return supabaseService.selectRange(productsQuery(), requestedRange[0], requestedRange[1],
+                            new ParameterizedTypeReference<List<ProductDTO>>() {})
+                    .map(PaginationSupport::rangePage);
+        }
+
+        if (PaginationSupport.isPaginated(limit, after)) {
+            if (!PaginationSupport.isValidCursor(after)) {
+                return Mono.just(ResponseEntity.<List<ProductDTO>>badRequest().build());
+            }
+            int pageSize = PaginationSupport.clampLimit(limit);
+            return supabaseService.selectPage(productsQuery(), after, pageSize,
+                            new ParameterizedTypeReference<List<ProductDTO>>() {})
+                    .map(page -> PaginationSupport.keysetPage(page, pageSize, ProductDTO::getId));
+        }
+
+        return catalogCache.getAll()
                 .map(ResponseEntity::ok)
                 .switchIfEmpty(Mono.just(ResponseEntity.<List<ProductDTO>>notFound().build()));
     }
 
+    @Operation(
+            summary = "Obtener todos los productos en streaming (NDJSON)",
+            description = "Emite los productos del catálogo como JSON delimitado por saltos de línea " +
+                    "a medida que se leen de la base de datos. Usar con ?format=ndjson."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Stream de productos",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                    schema = @Schema(implementation = ProductDTO.class)
+            )
+    )
+    @GetMapping(params = "format=ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ProductDTO> streamAllProducts() {
+        return supabaseService.stream(productsQuery(), ProductDTO.class, ProductDTO::getId);
+    }
+
     @Operation(
             summary = "Obtener producto por ID",
             description = "Retorna la información detallada de un producto específico"
@@ -81,13 +134,9 @@ public class ProductController {
                     example = "550e8400-e29b-41d4-a716-446655440000"
             )
             @PathVariable String id) {
-        return supabaseService.selectById("products", id, new ParameterizedTypeReference<List<ProductDTO>>() {})
-                .flatMap(list -> {
-                    if (list == null || list.isEmpty()) {
-                        return Mono.just(ResponseEntity.<ProductDTO>notFound().build());
-                    }
-                    return Mono.just(ResponseEntity.ok(list.get(0)));
-                });
+        return catalogCache.getById(id)
+                .map(ResponseEntity::ok)
+                .switchIfEmpty(Mono.just(ResponseEntity.<ProductDTO>notFound().build()));
     }
 
     @Operation(
@@ -117,8 +166,8 @@ public class ProductController {
                     example = "pikachu"
             )
             @RequestParam String name) {
-        String filter = "product_name=ilike.*" + name + "*";
-        return supabaseService.selectWithFilter("products", filter, new ParameterizedTypeReference<List<ProductDTO>>() {})
+        PostgrestQuery query = productsQuery().ilikeContains("product_name", name);
+        return supabaseService.select(query, new ParameterizedTypeReference<List<ProductDTO>>() {})
                 .map(ResponseEntity::ok)
                 .switchIfEmpty(Mono.just(ResponseEntity.<List<ProductDTO>>notFound().build()));
     }
@@ -163,6 +212,8 @@ public class ProductController {
                     if (list == null || list.isEmpty()) {
                         return Mono.just(ResponseEntity.<ProductDTO>badRequest().build());
                     }
+                    catalogCache.onProductSaved(list.get(0));
+                    inventoryLedger.onStockSet(list.get(0).getId(), list.get(0).getQuantity());
                     return Mono.just(ResponseEntity.ok(list.get(0)));
                 });
     }
@@ -213,6 +264,9 @@ public class ProductController {
                     if (list == null || list.isEmpty()) {
                         return Mono.just(ResponseEntity.<ProductDTO>notFound().build());
                     }
+                    catalogCache.onProductSaved(list.get(0));
+                    // Solo si el PATCH fijó el stock: la fila devuelta no incluye las reservas pendientes
+                    inventoryLedger.onStockSet(list.get(0).getId(), productDTO.getQuantity());
                     return Mono.just(ResponseEntity.ok(list.get(0)));
                 });
     }
@@ -249,7 +303,17 @@ public class ProductController {
             )
             @PathVariable String id) {
         return supabaseService.delete("products", id)
+                // Solo si el DELETE se confirmó: si falla, el producto sigue existiendo, el catálogo
+                // debe seguir mostrándolo y el ledger limitando sus reservas
+                .then(Mono.fromRunnable(() -> {
+                    catalogCache.onProductDeleted(id);
+                    inventoryLedger.onProductDeleted(id);
+                }))
                 .then(Mono.just(ResponseEntity.noContent().<Void>build()))
                 .switchIfEmpty(Mono.just(ResponseEntity.<Void>notFound().build()));
     }
+
+    private PostgrestQuery productsQuery() {
+        return PostgrestQuery.from("products").select(ProductDTO.COLUMNS);
+    }
 }
@@ -2,7 +2,10 @@ package com.pokestore.poke_api.controller;
 
 import com.pokestore.poke_api.dto.CreateUserDTO;
 import com.pokestore.poke_api.dto.UserDTO;
+import com.pokestore.poke_api.service.JwtService;
+import com.pokestore.poke_api.service.PostgrestQuery;
 import com.pokestore.poke_api.service.SupabaseService;
+import com.pokestore.poke_api.service.UserExistenceIndex;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -12,8 +15,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
@@ -26,14 +31,20 @@ import java.util.Map;
 public class UserController {
 
     private final SupabaseService supabaseService;
+    private final UserExistenceIndex existenceIndex;
+    private final JwtService jwtService;
 
-    public UserController(SupabaseService supabaseService) {
+    public UserController(SupabaseService supabaseService, UserExistenceIndex existenceIndex, JwtService jwtService) {
         this.supabaseService = supabaseService;
+        this.existenceIndex = existenceIndex;
+        this.jwtService = jwtService;
     }
 
     @Operation(
             summary = "Obtener todos los usuarios",
-            description = "Retorna una lista con todos los usuarios registrados en el sistema"
+            description = "Retorna una lista con todos los usuarios registrados en el sistema. " +
+                    "Admite paginación por cursor (limit + after, con el siguiente cursor en X-Next-Cursor) " +
+                    "o por rango con el header Range: items=0-49."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -50,12 +61,53 @@ public class UserController {
             )
     })
     @GetMapping
-    public Mono<ResponseEntity<List<UserDTO>>> getAllUsers() {
-        return supabaseService.selectAll("users", new ParameterizedTypeReference<List<UserDTO>>() {})
+    public Mono<ResponseEntity<List<UserDTO>>> getAllUsers(
+            @Parameter(description = "Cantidad máxima de usuarios a retornar", example = "50")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Cursor: ID del último usuario de la página anterior")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Rango de filas a retornar", example = "items=0-49")
+            @RequestHeader(value = "Range", required = false) String range) {
+        long[] requestedRange = PaginationSupport.parseRange(range);
+        if (requestedRange != null) {
+            return supabaseService.selectRange(usersQuery(), requestedRange[0], requestedRange[1],
+                            new ParameterizedTypeReference<List<UserDTO>>() {})
+                    .map(PaginationSupport::rangePage);
+        }
+
+        if (PaginationSupport.isPaginated(limit, after)) {
+            if (!PaginationSupport.isValidCursor(after)) {
+                return Mono.just(ResponseEntity.<List<UserDTO>>badRequest().build());
+            }
+            int pageSize = PaginationSupport.clampLimit(limit);
+            return supabaseService.selectPage(usersQuery(), after, pageSize,
+                            new ParameterizedTypeReference<List<UserDTO>>() {})
+                    .map(page -> PaginationSupport.keysetPage(page, pageSize, UserDTO::getId));
+        }
+
+        return supabaseService.select(usersQuery(), new ParameterizedTypeReference<List<UserDTO>>() {})
                 .map(ResponseEntity::ok)
                 .switchIfEmpty(Mono.just(ResponseEntity.<List<UserDTO>>notFound().build()));
     }
 
+    @Operation(
+            summary = "Obtener todos los usuarios en streaming (NDJSON)",
+            description = "Emite los usuarios como JSON delimitado por saltos de línea " +
+                    "a medida que se leen de la base de datos. Usar con ?format=ndjson."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Stream de usuarios",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                    schema = @Schema(implementation = UserDTO.class)
+            )
+    )
+    @GetMapping(params = "format=ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserDTO> streamAllUsers() {
+        return supabaseService.stream(usersQuery(), UserDTO.class, UserDTO::getId);
+    }
+
     @Operation(
             summary = "Obtener usuario por ID",
             description = "Retorna la información de un usuario específico por su ID único"
@@ -82,7 +134,7 @@ public class UserController {
                     example = "550e8400-e29b-41d4-a716-446655440000"
             )
             @PathVariable String id) {
-        return supabaseService.selectById("users", id, new ParameterizedTypeReference<List<UserDTO>>() {})
+        return supabaseService.select(usersQuery().eq("id", id), new ParameterizedTypeReference<List<UserDTO>>() {})
                 .flatMap(list -> {
                     if (list == null || list.isEmpty()) {
                         return Mono.just(ResponseEntity.<UserDTO>notFound().build());
@@ -117,8 +169,7 @@ public class UserController {
                     example = "usuario@ejemplo.com"
             )
             @PathVariable String email) {
-        String filter = "email=eq." + email;
-        return supabaseService.selectWithFilter("users", filter, new ParameterizedTypeReference<List<UserDTO>>() {})
+        return supabaseService.select(usersQuery().eq("email", email).limit(1), new ParameterizedTypeReference<List<UserDTO>>() {})
                 .flatMap(list -> {
                     if (list == null || list.isEmpty()) {
                         return Mono.just(ResponseEntity.<UserDTO>notFound().build());
@@ -165,6 +216,7 @@ public class UserController {
                     if (list == null || list.isEmpty()) {
                         return Mono.just(ResponseEntity.<UserDTO>badRequest().build());
                     }
+                    existenceIndex.onUserSaved(list.get(0));
                     return Mono.just(ResponseEntity.ok(list.get(0)));
                 });
     }
@@ -200,11 +252,16 @@ public class UserController {
                     required = true
             )
             @RequestBody Map<String, Object> updates) {
-        return supabaseService.update("users", id, updates, new ParameterizedTypeReference<List<UserDTO>>() {})
+        return supabaseService.updateWhere(usersQuery().eq("id", id), updates, new ParameterizedTypeReference<List<UserDTO>>() {})
                 .flatMap(list -> {
                     if (list == null || list.isEmpty()) {
                         return Mono.just(ResponseEntity.<UserDTO>notFound().build());
                     }
+                    existenceIndex.onUserSaved(list.get(0));
+                    // Un cambio de rol invalida los tokens emitidos con el rol anterior
+                    if (updates.containsKey("isAdmin")) {
+                        jwtService.revokeAllForUser(id);
+                    }
                     return Mono.just(ResponseEntity.ok(list.get(0)));
                 });
     }
@@ -232,7 +289,15 @@ public class UserController {
             )
             @PathVariable String id) {
         return supabaseService.delete("users", id)
+                .doOnSuccess(ignored -> {
+                    existenceIndex.onUserDeleted();
+                    jwtService.revokeAllForUser(id);
+                })
                 .then(Mono.just(ResponseEntity.noContent().<Void>build()))
                 .switchIfEmpty(Mono.just(ResponseEntity.<Void>notFound().build()));
     }
+
+    private PostgrestQuery usersQuery() {
+        return PostgrestQuery.from("users").select(UserDTO.COLUMNS);
+    }
 }
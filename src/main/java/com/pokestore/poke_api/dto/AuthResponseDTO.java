@@ -17,6 +17,9 @@ public class AuthResponseDTO {
     @Schema(description = "Token JWT para autenticación", example = "eyJhbGciOiJIUzI1NiIs...")
     private String token;
 
+    @Schema(description = "Refresh token para obtener un nuevo token en /api/auth/refresh", example = "eyJhbGciOiJIUzI1NiIs...")
+    private String refreshToken;
+
     public AuthResponseDTO() {
     }
 
@@ -31,6 +34,12 @@ public class AuthResponseDTO {
         return new AuthResponseDTO(true, message, user, token);
     }
 
+    public static AuthResponseDTO success(String message, UserDTO user, String token, String refreshToken) {
+        AuthResponseDTO response = new AuthResponseDTO(true, message, user, token);
+        response.setRefreshToken(refreshToken);
+        return response;
+    }
+
     public static AuthResponseDTO error(String message) {
         return new AuthResponseDTO(false, message, null, null);
     }
@@ -44,4 +53,6 @@ public class AuthResponseDTO {
     public void setUser(UserDTO user) { this.user = user; }
     public String getToken() { return token; }
     public void setToken(String token) { this.token = token; }
+    public String getRefreshToken() { return refreshToken; }
+    public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
 }
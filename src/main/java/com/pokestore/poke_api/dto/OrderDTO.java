@@ -11,6 +11,9 @@ import java.util.UUID;
 @Schema(description = "Información de una orden de compra")
 public class OrderDTO {
 
+    /** Columnas de Supabase que se leen para este DTO (select=) */
+    public static final String COLUMNS = "id,user_id,status,total_amount,shipping_address,notes,created_at,updated_at";
+
     @Schema(description = "ID único de la orden", example = "550e8400-e29b-41d4-a716-446655440000")
     private UUID id;
 
@@ -59,6 +62,16 @@ public class OrderDTO {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Copia de la orden con los items indicados. Las órdenes leídas de Supabase pueden estar
+     * compartidas entre peticiones (single-flight), por lo que no se modifican en el lugar.
+     */
+    public OrderDTO withItems(List<OrderItemDTO> items) {
+        OrderDTO copy = new OrderDTO(id, userId, status, totalAmount, shippingAddress, notes, createdAt, updatedAt);
+        copy.setItems(items);
+        return copy;
+    }
+
     // Getters y Setters
     public UUID getId() { return id; }
     public void setId(UUID id) { this.id = id; }
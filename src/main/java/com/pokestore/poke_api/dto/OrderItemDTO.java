@@ -10,6 +10,9 @@ import java.util.UUID;
 @Schema(description = "Item de una orden (producto y cantidad)")
 public class OrderItemDTO {
 
+    /** Columnas de Supabase que se leen para este DTO (select=) */
+    public static final String COLUMNS = "id,order_id,product_id,quantity,unit_price,subtotal,created_at";
+
     @Schema(description = "ID único del item", example = "550e8400-e29b-41d4-a716-446655440000")
     private UUID id;
 
@@ -0,0 +1,58 @@
+package com.pokestore.poke_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Schema(description = "Cambio de estado de una orden, emitido por GET /api/orders/stream")
+public class OrderStatusEventDTO {
+
+    @Schema(description = "ID de la orden", example = "550e8400-e29b-41d4-a716-446655440000")
+    @JsonProperty("order_id")
+    private UUID orderId;
+
+    @Schema(description = "ID del usuario dueño de la orden")
+    @JsonProperty("user_id")
+    private UUID userId;
+
+    @Schema(description = "Estado anterior, si se conoce", example = "pending")
+    @JsonProperty("previous_status")
+    private String previousStatus;
+
+    @Schema(description = "Nuevo estado de la orden", example = "paid",
+            allowableValues = {"pending", "paid", "processing", "shipped", "delivered", "cancelled"})
+    private String status;
+
+    @Schema(description = "Momento del cambio de estado")
+    @JsonProperty("occurred_at")
+    private Instant occurredAt;
+
+    public OrderStatusEventDTO() {
+    }
+
+    public OrderStatusEventDTO(UUID orderId, UUID userId, String previousStatus, String status, Instant occurredAt) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.occurredAt = occurredAt;
+    }
+
+    // Getters y Setters
+    public UUID getOrderId() { return orderId; }
+    public void setOrderId(UUID orderId) { this.orderId = orderId; }
+
+    public UUID getUserId() { return userId; }
+    public void setUserId(UUID userId) { this.userId = userId; }
+
+    public String getPreviousStatus() { return previousStatus; }
+    public void setPreviousStatus(String previousStatus) { this.previousStatus = previousStatus; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Instant getOccurredAt() { return occurredAt; }
+    public void setOccurredAt(Instant occurredAt) { this.occurredAt = occurredAt; }
+}
@@ -9,6 +9,9 @@ import java.util.UUID;
 @Schema(description = "Información del producto")
 public class ProductDTO {
 
+    /** Columnas de Supabase que se leen para este DTO (select=) */
+    public static final String COLUMNS = "id,product_name,price,quantity,description,category,image_url,created_at";
+
     @Schema(
             description = "ID único del producto",
             example = "550e8400-e29b-41d4-a716-446655440000"
@@ -8,6 +8,9 @@ import java.util.UUID;
 @Schema(description = "Información pública del usuario (sin contraseña)")
 public class UserDTO {
 
+    /** Columnas de Supabase que se leen para este DTO (select=) */
+    public static final String COLUMNS = "id,username,email,rut,isAdmin,created_at";
+
     @Schema(
             description = "ID único del usuario",
             example = "550e8400-e29b-41d4-a716-446655440000"
@@ -9,6 +9,9 @@ import java.util.UUID;
  */
 public class UserWithPasswordDTO {
 
+    /** Columnas de Supabase que se leen para este DTO (select=) */
+    public static final String COLUMNS = UserDTO.COLUMNS + ",hash_pass";
+
     private UUID id;
     private String username;
     
@@ -0,0 +1,53 @@
+package com.pokestore.poke_api.metrics;
+
+import org.springframework.stereotype.Component;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recibe los pools de conexiones creados por Reactor Netty y expone su ocupación
+ * (conexiones activas, ociosas y adquisiciones pendientes) en /api/metrics.
+ */
+@Component
+public class ConnectionPoolMetricsRegistry implements ConnectionProvider.MeterRegistrar, MetricsSource {
+
+    private final Map<String, ConnectionPoolMetrics> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        pools.put(key(poolName, id, remoteAddress), metrics);
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        pools.remove(key(poolName, id, remoteAddress));
+    }
+
+    private String key(String poolName, String id, SocketAddress remoteAddress) {
+        return poolName + "[" + id + "]@" + remoteAddress;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "connectionPools";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        pools.forEach((name, pool) -> metrics.put(name, Map.of(
+                "active", pool.acquiredSize(),
+                "idle", pool.idleSize(),
+                "allocated", pool.allocatedSize(),
+                "pendingAcquires", pool.pendingAcquireSize(),
+                "maxConnections", pool.maxAllocatedSize(),
+                "maxPendingAcquires", pool.maxPendingAcquireSize()
+        )));
+        return metrics;
+    }
+}
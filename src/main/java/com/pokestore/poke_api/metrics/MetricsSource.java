@@ -0,0 +1,20 @@
+package com.pokestore.poke_api.metrics;
+
+import java.util.Map;
+
+/**
+ * Componente que expone contadores internos (cachés, pools, limitadores, etc.).
+ * Todos los beans que implementan esta interfaz se publican en /api/metrics.
+ */
+public interface MetricsSource {
+
+    /**
+     * Nombre bajo el cual se agrupan las métricas del componente
+     */
+    String getMetricsName();
+
+    /**
+     * Valores actuales de las métricas
+     */
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,73 @@
+package com.pokestore.poke_api.model;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Estados de una orden y transiciones permitidas entre ellos.
+ *
+ * pending -> paid -> processing -> shipped -> delivered
+ * Un admin puede cancelar hasta que la orden se envía; el dueño solo mientras está pending o paid.
+ * delivered y cancelled son finales.
+ */
+public enum OrderStatus {
+
+    PENDING("pending"),
+    PAID("paid"),
+    PROCESSING("processing"),
+    SHIPPED("shipped"),
+    DELIVERED("delivered"),
+    CANCELLED("cancelled");
+
+    private final String value;
+
+    OrderStatus(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Valor guardado en la columna orders.status
+     */
+    public String value() {
+        return value;
+    }
+
+    /**
+     * Estados desde los que un admin puede pasar la orden a este estado
+     */
+    public Set<OrderStatus> allowedPredecessors() {
+        return switch (this) {
+            case PENDING -> EnumSet.noneOf(OrderStatus.class);
+            case PAID -> EnumSet.of(PENDING);
+            case PROCESSING -> EnumSet.of(PENDING, PAID);
+            case SHIPPED -> EnumSet.of(PROCESSING);
+            case DELIVERED -> EnumSet.of(SHIPPED);
+            case CANCELLED -> EnumSet.of(PENDING, PAID, PROCESSING);
+        };
+    }
+
+    /**
+     * Estados desde los que el dueño de la orden puede cancelarla
+     */
+    public static Set<OrderStatus> cancellableByOwner() {
+        return EnumSet.of(PENDING, PAID);
+    }
+
+    /**
+     * Estado con el valor indicado, o null si no existe
+     */
+    public static OrderStatus fromValue(String value) {
+        for (OrderStatus status : values()) {
+            if (status.value.equals(value)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    public static List<String> allValues() {
+        return Arrays.stream(values()).map(OrderStatus::value).toList();
+    }
+}
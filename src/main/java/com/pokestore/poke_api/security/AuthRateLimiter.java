@@ -0,0 +1,165 @@
+package com.pokestore.poke_api.security;
+
+import com.pokestore.poke_api.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limitador de intentos de login y registro (token bucket) por IP del cliente y por email.
+ * Se evalúa antes de cualquier cálculo BCrypt o consulta a Supabase.
+ *
+ * Cada bucket es un único AtomicLong con el "theoretical arrival time" (GCRA), equivalente a un
+ * token bucket de capacidad burst que se recarga a razón de per-minute por minuto, actualizado
+ * con CAS y sin locks. Los buckets completamente recargados se eliminan periódicamente, ya que
+ * son indistinguibles de uno nuevo.
+ *
+ * Configuración: auth.rate-limit.enabled, auth.rate-limit.<ip|email>.per-minute y .burst,
+ * auth.rate-limit.trust-forwarded-for
+ */
+@Component
+public class AuthRateLimiter implements MetricsSource {
+
+    public enum Scope {
+        IP, EMAIL
+    }
+
+    /**
+     * Resultado de un intento: permitido o rechazado con el tiempo a esperar
+     */
+    public record Decision(boolean allowed, Scope scope, long retryAfterMillis) {
+
+        static final Decision ALLOWED = new Decision(true, null, 0);
+
+        /**
+         * Segundos para el header Retry-After (al menos 1)
+         */
+        public long retryAfterSeconds() {
+            return Math.max(1, (retryAfterMillis + 999) / 1000);
+        }
+    }
+
+    private static final Duration SWEEP_INTERVAL = Duration.ofMinutes(1);
+
+    private final boolean enabled;
+    private final boolean trustForwardedFor;
+    private final Map<Scope, Limit> limits = new LinkedHashMap<>();
+    private final Map<Scope, Map<String, AtomicLong>> buckets = new LinkedHashMap<>();
+
+    private final LongAdder allowed = new LongAdder();
+    private final Map<Scope, LongAdder> throttled = new LinkedHashMap<>();
+    private final Disposable sweeper;
+
+    /**
+     * Intervalo entre tokens y tolerancia de ráfaga, en nanosegundos
+     */
+    private record Limit(long emissionIntervalNanos, long burstToleranceNanos) {
+    }
+
+    public AuthRateLimiter(Environment environment) {
+        this.enabled = environment.getProperty("auth.rate-limit.enabled", Boolean.class, true);
+        this.trustForwardedFor = environment.getProperty("auth.rate-limit.trust-forwarded-for", Boolean.class, false);
+        for (Scope scope : Scope.values()) {
+            String prefix = "auth.rate-limit." + scope.name().toLowerCase(Locale.ROOT);
+            int perMinute = environment.getProperty(prefix + ".per-minute", Integer.class, scope == Scope.IP ? 20 : 5);
+            int burst = environment.getProperty(prefix + ".burst", Integer.class, scope == Scope.IP ? 20 : 5);
+            long interval = Duration.ofMinutes(1).toNanos() / Math.max(1, perMinute);
+            limits.put(scope, new Limit(interval, interval * (Math.max(1, burst) - 1)));
+            buckets.put(scope, new ConcurrentHashMap<>());
+            throttled.put(scope, new LongAdder());
+        }
+        this.sweeper = enabled
+                ? Flux.interval(SWEEP_INTERVAL).subscribe(tick -> sweepIdleBuckets())
+                : null;
+    }
+
+    /**
+     * Consume un intento para la IP del request y, si se indica, para el email
+     */
+    public Decision tryAcquire(HttpServletRequest request, String email) {
+        if (!enabled) {
+            return Decision.ALLOWED;
+        }
+        Decision decision = tryAcquire(Scope.IP, clientIp(request));
+        if (decision.allowed() && email != null && !email.isBlank()) {
+            decision = tryAcquire(Scope.EMAIL, email.trim().toLowerCase(Locale.ROOT));
+        }
+        if (decision.allowed()) {
+            allowed.increment();
+        } else {
+            throttled.get(decision.scope()).increment();
+        }
+        return decision;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "authRateLimiter";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("allowed", allowed.sum());
+        metrics.put("throttledByIp", throttled.get(Scope.IP).sum());
+        metrics.put("throttledByEmail", throttled.get(Scope.EMAIL).sum());
+        metrics.put("trackedIps", buckets.get(Scope.IP).size());
+        metrics.put("trackedEmails", buckets.get(Scope.EMAIL).size());
+        return metrics;
+    }
+
+    // ============ Métodos auxiliares ============
+
+    private Decision tryAcquire(Scope scope, String key) {
+        Limit limit = limits.get(scope);
+        AtomicLong bucket = buckets.get(scope).computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            long now = System.nanoTime();
+            long stored = bucket.get();
+            long tat = stored - now < 0 ? now : stored;
+            long wait = tat - now - limit.burstToleranceNanos();
+            if (wait > 0) {
+                return new Decision(false, scope, Duration.ofNanos(wait).toMillis());
+            }
+            if (bucket.compareAndSet(stored, tat + limit.emissionIntervalNanos())) {
+                return Decision.ALLOWED;
+            }
+        }
+    }
+
+    private void sweepIdleBuckets() {
+        long now = System.nanoTime();
+        for (Map<String, AtomicLong> scopeBuckets : buckets.values()) {
+            scopeBuckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                return forwarded.split(",")[0].trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -2,20 +2,50 @@ package com.pokestore.poke_api.security;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Interceptor que verifica las anotaciones @AdminOnly y @Authenticated
  * en los métodos de los controllers y valida los permisos correspondientes.
+ *
+ * El rol requerido por cada endpoint se resuelve una sola vez al iniciar (tabla inmutable
+ * Method -> RequiredRole), de modo que cada request es una búsqueda en el mapa más una
+ * comprobación del JwtPrincipal. Las respuestas 401/403 se serializan de antemano.
  */
 @Component
 public class AuthorizationInterceptor implements HandlerInterceptor {
 
+    private static final byte[] UNAUTHORIZED_BODY = errorBody(
+            "Unauthorized", "Token de autenticación requerido", HttpServletResponse.SC_UNAUTHORIZED);
+    private static final byte[] FORBIDDEN_BODY = errorBody(
+            "Forbidden", "Acceso denegado. Se requiere rol de administrador", HttpServletResponse.SC_FORBIDDEN);
+
+    private volatile Map<Method, RequiredRole> requiredRoles = Map.of();
+
+    /**
+     * Construye la tabla de roles a partir de todos los endpoints registrados
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void buildDecisionTable(ContextRefreshedEvent event) {
+        Map<Method, RequiredRole> table = new HashMap<>();
+        event.getApplicationContext().getBeansOfType(RequestMappingHandlerMapping.class).values()
+                .forEach(mapping -> mapping.getHandlerMethods().values()
+                        .forEach(handlerMethod -> table.put(handlerMethod.getMethod(), resolveRole(handlerMethod))));
+        requiredRoles = Map.copyOf(table);
+    }
+
     @Override
     public boolean preHandle(
             @NonNull HttpServletRequest request,
@@ -27,51 +57,56 @@ public class AuthorizationInterceptor implements HandlerInterceptor {
             return true;
         }
 
-        // Verificar si el método o la clase requieren @AdminOnly
-        boolean requiresAdmin = handlerMethod.hasMethodAnnotation(AdminOnly.class) ||
-                handlerMethod.getBeanType().isAnnotationPresent(AdminOnly.class);
-
-        // Verificar si el método o la clase requieren @Authenticated
-        boolean requiresAuth = handlerMethod.hasMethodAnnotation(Authenticated.class) ||
-                handlerMethod.getBeanType().isAnnotationPresent(Authenticated.class);
-
-        // Si requiere admin, también requiere autenticación
-        if (requiresAdmin) {
-            requiresAuth = true;
+        RequiredRole role = requiredRoles.get(handlerMethod.getMethod());
+        if (role == null) {
+            // Endpoint registrado después de construir la tabla
+            role = resolveRole(handlerMethod);
+        }
+        if (role == RequiredRole.PUBLIC) {
+            return true;
         }
 
-        // Obtener información del request (establecida por JwtAuthFilter)
-        Boolean isAuthenticated = (Boolean) request.getAttribute("authenticated");
-        Boolean isAdmin = (Boolean) request.getAttribute("isAdmin");
-
-        // Verificar autenticación
-        if (requiresAuth && (isAuthenticated == null || !isAuthenticated)) {
-            sendUnauthorizedResponse(response, "Token de autenticación requerido");
+        // Principal establecido por JwtAuthFilter si el token es válido
+        Object principal = request.getAttribute(JwtPrincipal.REQUEST_ATTRIBUTE);
+        if (!(principal instanceof JwtPrincipal jwtPrincipal)) {
+            writeError(response, HttpServletResponse.SC_UNAUTHORIZED, UNAUTHORIZED_BODY);
             return false;
         }
 
-        // Verificar rol de admin
-        if (requiresAdmin && (isAdmin == null || !isAdmin)) {
-            sendForbiddenResponse(response, "Acceso denegado. Se requiere rol de administrador");
+        if (role == RequiredRole.ADMIN && !jwtPrincipal.isAdmin()) {
+            writeError(response, HttpServletResponse.SC_FORBIDDEN, FORBIDDEN_BODY);
             return false;
         }
 
         return true;
     }
 
-    private void sendUnauthorizedResponse(HttpServletResponse response, String message) throws IOException {
-        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        response.getWriter().write(String.format(
-                "{\"error\": \"Unauthorized\", \"message\": \"%s\", \"status\": 401}", message));
+    /**
+     * Rol requerido por un endpoint: @AdminOnly implica autenticación.
+     * Las anotaciones pueden estar en el método o en la clase del controller.
+     */
+    static RequiredRole resolveRole(HandlerMethod handlerMethod) {
+        if (handlerMethod.hasMethodAnnotation(AdminOnly.class) ||
+                handlerMethod.getBeanType().isAnnotationPresent(AdminOnly.class)) {
+            return RequiredRole.ADMIN;
+        }
+        if (handlerMethod.hasMethodAnnotation(Authenticated.class) ||
+                handlerMethod.getBeanType().isAnnotationPresent(Authenticated.class)) {
+            return RequiredRole.AUTHENTICATED;
+        }
+        return RequiredRole.PUBLIC;
     }
 
-    private void sendForbiddenResponse(HttpServletResponse response, String message) throws IOException {
-        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+    private void writeError(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        response.getWriter().write(String.format(
-                "{\"error\": \"Forbidden\", \"message\": \"%s\", \"status\": 403}", message));
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static byte[] errorBody(String error, String message, int status) {
+        return String.format("{\"error\": \"%s\", \"message\": \"%s\", \"status\": %d}", error, message, status)
+                .getBytes(StandardCharsets.UTF_8);
     }
 }
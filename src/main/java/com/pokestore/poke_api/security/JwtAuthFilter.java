@@ -36,17 +36,15 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             String token = authHeader.substring(7);
 
             try {
-                if (jwtService.isTokenValid(token)) {
-                    String userId = jwtService.getUserIdFromToken(token);
-                    String email = jwtService.getEmailFromToken(token);
-                    Boolean isAdmin = jwtService.getIsAdminFromToken(token);
-
-                    // Guardar información en los atributos del request
-                    request.setAttribute("userId", userId);
-                    request.setAttribute("email", email);
-                    request.setAttribute("isAdmin", isAdmin != null && isAdmin);
-                    request.setAttribute("authenticated", true);
-                }
+                // Una sola verificación por request (o ninguna si el token ya está en caché)
+                JwtPrincipal principal = jwtService.verify(token);
+
+                // Guardar información en los atributos del request
+                request.setAttribute(JwtPrincipal.REQUEST_ATTRIBUTE, principal);
+                request.setAttribute("userId", principal.userId());
+                request.setAttribute("email", principal.email());
+                request.setAttribute("isAdmin", principal.isAdmin());
+                request.setAttribute("authenticated", true);
             } catch (Exception e) {
                 // Token inválido, continuar sin autenticación
                 request.setAttribute("authenticated", false);
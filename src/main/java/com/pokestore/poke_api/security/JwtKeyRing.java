@@ -0,0 +1,385 @@
+package com.pokestore.poke_api.security;
+
+import com.pokestore.poke_api.metrics.MetricsSource;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Claves de firma de JWT, identificadas por kid.
+ *
+ * Sin directorio de claves (jwt.keys.dir vacío) se usa jwt.secret con HS256 (kid "default"), o un
+ * par de claves efímero si jwt.algorithm es ES256 o EdDSA. Con directorio, se leen:
+ * <ul>
+ *   <li>&lt;kid&gt;.secret: secreto HMAC (HS256, al menos 32 bytes)</li>
+ *   <li>&lt;kid&gt;.key.pem: clave privada PKCS#8 (EC P-256 o Ed25519)</li>
+ *   <li>&lt;kid&gt;.pub.pem: clave pública X.509; sin la privada solo sirve para verificar</li>
+ *   <li>active.kid: kid con el que se firma; si no existe, la clave más reciente del algoritmo configurado</li>
+ * </ul>
+ * El directorio se revisa cada jwt.keys.reload-seconds y el anillo se reemplaza si algo cambió.
+ * Para rotar: agregar la clave nueva, apuntar active.kid a ella y conservar la pública anterior
+ * hasta que expiren los tokens firmados con ella.
+ */
+@Component
+public class JwtKeyRing implements MetricsSource {
+
+    public static final String DEFAULT_KID = "default";
+
+    public enum Algorithm {
+        HS256, ES256, EdDSA
+    }
+
+    /**
+     * Clave del anillo. signingKey es null si solo se tiene la clave pública.
+     */
+    public record KeyEntry(String kid, Algorithm algorithm, Key signingKey, Key verificationKey) {
+
+        public boolean canSign() {
+            return signingKey != null;
+        }
+    }
+
+    private record Snapshot(KeyEntry active, Map<String, KeyEntry> keys, String fingerprint) {
+    }
+
+    private final String secret;
+    private final Algorithm algorithm;
+    private final Path keysDir;
+    private final Disposable reloadTask;
+    private volatile Snapshot snapshot;
+    private volatile long reloads;
+
+    public JwtKeyRing(
+            @Value("${jwt.secret:defaultSecretKeyThatShouldBeAtLeast256BitsLong}") String secret,
+            @Value("${jwt.algorithm:HS256}") String algorithm,
+            @Value("${jwt.keys.dir:}") String keysDir,
+            @Value("${jwt.keys.reload-seconds:30}") long reloadSeconds) {
+        this.secret = secret;
+        this.algorithm = Algorithm.valueOf(algorithm.trim());
+        this.keysDir = keysDir == null || keysDir.isBlank() ? null : Path.of(keysDir.trim());
+        this.snapshot = load(null);
+        this.reloadTask = this.keysDir != null && reloadSeconds > 0
+                ? Flux.interval(Duration.ofSeconds(reloadSeconds)).subscribe(tick -> reload())
+                : null;
+    }
+
+    /**
+     * Clave con la que se firman los tokens nuevos
+     */
+    public KeyEntry activeKey() {
+        return snapshot.active();
+    }
+
+    /**
+     * Clave para verificar un token según su kid. Los tokens sin kid (emitidos antes de la
+     * rotación de claves) se verifican con la clave "default" si existe. Retorna null si el kid no se conoce.
+     */
+    public KeyEntry verificationKey(String kid) {
+        Map<String, KeyEntry> keys = snapshot.keys();
+        return keys.get(kid != null ? kid : DEFAULT_KID);
+    }
+
+    /**
+     * Claves públicas en formato JWK (RFC 7517). Las claves HMAC nunca se publican.
+     */
+    public List<Map<String, Object>> publicJwks() {
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        for (KeyEntry key : snapshot.keys().values()) {
+            if (key.algorithm() != Algorithm.HS256) {
+                jwks.add(toJwk(key));
+            }
+        }
+        return jwks;
+    }
+
+    /**
+     * Vuelve a leer el directorio de claves si su contenido cambió
+     */
+    public void reload() {
+        try {
+            Snapshot current = snapshot;
+            if (keysDir != null && !fingerprint().equals(current.fingerprint())) {
+                snapshot = load(current);
+                reloads++;
+                System.out.println("Claves JWT recargadas, activa: " + snapshot.active().kid());
+            }
+        } catch (Exception e) {
+            // Se mantienen las claves anteriores
+            System.err.println("Error al recargar claves JWT: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reloadTask != null) {
+            reloadTask.dispose();
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "jwtKeys";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Snapshot current = snapshot;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("algorithm", algorithm.name());
+        metrics.put("activeKid", current.active().kid());
+        metrics.put("kids", List.copyOf(current.keys().keySet()));
+        metrics.put("reloads", reloads);
+        return metrics;
+    }
+
+    // ============ Carga de claves ============
+
+    private Snapshot load(Snapshot previous) {
+        Map<String, KeyEntry> keys = new LinkedHashMap<>();
+        KeyEntry active = null;
+
+        if (keysDir != null) {
+            List<Path> files = listFiles();
+            Map<String, Key> privateKeys = new LinkedHashMap<>();
+            Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+            Map<String, Long> modified = new LinkedHashMap<>();
+
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    if (name.endsWith(".secret")) {
+                        String kid = name.substring(0, name.length() - ".secret".length());
+                        byte[] bytes = Files.readString(file, StandardCharsets.UTF_8).trim().getBytes(StandardCharsets.UTF_8);
+                        keys.put(kid, new KeyEntry(kid, Algorithm.HS256, Keys.hmacShaKeyFor(bytes), Keys.hmacShaKeyFor(bytes)));
+                        modified.put(kid, Files.getLastModifiedTime(file).toMillis());
+                    } else if (name.endsWith(".key.pem")) {
+                        String kid = name.substring(0, name.length() - ".key.pem".length());
+                        privateKeys.put(kid, parsePrivateKey(Files.readString(file, StandardCharsets.UTF_8)));
+                        modified.put(kid, Files.getLastModifiedTime(file).toMillis());
+                    } else if (name.endsWith(".pub.pem")) {
+                        String kid = name.substring(0, name.length() - ".pub.pem".length());
+                        publicKeys.put(kid, parsePublicKey(Files.readString(file, StandardCharsets.UTF_8)));
+                    }
+                } catch (Exception e) {
+                    System.err.println("Clave JWT ignorada (" + name + "): " + e.getMessage());
+                }
+            }
+
+            publicKeys.forEach((kid, publicKey) -> {
+                Algorithm keyAlgorithm = algorithmOf(publicKey);
+                if (keyAlgorithm == null) {
+                    System.err.println("Clave JWT ignorada (" + kid + "): tipo de clave no soportado");
+                    return;
+                }
+                keys.put(kid, new KeyEntry(kid, keyAlgorithm, privateKeys.get(kid), publicKey));
+            });
+            privateKeys.keySet().stream()
+                    .filter(kid -> !publicKeys.containsKey(kid))
+                    .forEach(kid -> System.err.println("Clave JWT ignorada (" + kid + "): falta " + kid + ".pub.pem"));
+
+            active = resolveActive(keys, modified);
+        }
+
+        if (active == null) {
+            active = fallbackKey(previous);
+            keys.putIfAbsent(active.kid(), active);
+        }
+        if (algorithm == Algorithm.HS256 && !keys.containsKey(DEFAULT_KID)) {
+            KeyEntry legacy = hmacFromSecret();
+            keys.put(DEFAULT_KID, legacy);
+        }
+        return new Snapshot(active, Map.copyOf(keys), keysDir != null ? fingerprint() : "");
+    }
+
+    private KeyEntry resolveActive(Map<String, KeyEntry> keys, Map<String, Long> modified) {
+        Path activeFile = keysDir.resolve("active.kid");
+        if (Files.isRegularFile(activeFile)) {
+            try {
+                String kid = Files.readString(activeFile, StandardCharsets.UTF_8).trim();
+                KeyEntry key = keys.get(kid);
+                if (key != null && key.canSign()) {
+                    return key;
+                }
+                System.err.println("active.kid apunta a una clave inexistente o sin clave privada: " + kid);
+            } catch (IOException e) {
+                System.err.println("No se pudo leer active.kid: " + e.getMessage());
+            }
+        }
+        return keys.values().stream()
+                .filter(KeyEntry::canSign)
+                .filter(key -> key.algorithm() == algorithm)
+                .max(Comparator.comparingLong(key -> modified.getOrDefault(key.kid(), 0L)))
+                .orElse(null);
+    }
+
+    /**
+     * Clave usada si el directorio no aporta una clave de firma: jwt.secret para HS256 o un par
+     * efímero (distinto en cada réplica) para ES256/EdDSA. El par efímero se conserva entre recargas.
+     */
+    private KeyEntry fallbackKey(Snapshot previous) {
+        if (algorithm == Algorithm.HS256) {
+            return hmacFromSecret();
+        }
+        if (previous != null && previous.active().kid().startsWith("ephemeral-")
+                && previous.active().algorithm() == algorithm) {
+            return previous.active();
+        }
+        try {
+            KeyPair pair = generateKeyPair(algorithm);
+            String kid = "ephemeral-" + UUID.randomUUID().toString().substring(0, 8);
+            System.err.println("No hay claves " + algorithm + " configuradas; se usa un par efímero (" + kid + ")");
+            return new KeyEntry(kid, algorithm, pair.getPrivate(), pair.getPublic());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo generar un par de claves " + algorithm, e);
+        }
+    }
+
+    private KeyEntry hmacFromSecret() {
+        Key key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        return new KeyEntry(DEFAULT_KID, Algorithm.HS256, key, key);
+    }
+
+    /**
+     * Genera un par de claves para el algoritmo indicado (P-256 para ES256, Ed25519 para EdDSA)
+     */
+    public static KeyPair generateKeyPair(Algorithm algorithm) throws GeneralSecurityException {
+        if (algorithm == Algorithm.ES256) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        }
+        if (algorithm == Algorithm.EdDSA) {
+            return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        }
+        throw new IllegalArgumentException("HS256 no usa pares de claves");
+    }
+
+    private List<Path> listFiles() {
+        if (!Files.isDirectory(keysDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(keysDir)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer el directorio de claves " + keysDir, e);
+        }
+    }
+
+    /**
+     * Resumen del directorio (nombre, tamaño y fecha de cada archivo) para detectar cambios
+     */
+    private String fingerprint() {
+        return listFiles().stream()
+                .map(file -> {
+                    try {
+                        return file.getFileName() + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+                    } catch (IOException e) {
+                        return file.getFileName() + ":?";
+                    }
+                })
+                .collect(Collectors.joining("|"));
+    }
+
+    private static Key parsePrivateKey(String pem) throws GeneralSecurityException {
+        PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(decodePem(pem));
+        try {
+            return KeyFactory.getInstance("EC").generatePrivate(spec);
+        } catch (GeneralSecurityException e) {
+            return KeyFactory.getInstance("Ed25519").generatePrivate(spec);
+        }
+    }
+
+    private static PublicKey parsePublicKey(String pem) throws GeneralSecurityException {
+        X509EncodedKeySpec spec = new X509EncodedKeySpec(decodePem(pem));
+        try {
+            return KeyFactory.getInstance("EC").generatePublic(spec);
+        } catch (GeneralSecurityException e) {
+            return KeyFactory.getInstance("Ed25519").generatePublic(spec);
+        }
+    }
+
+    private static byte[] decodePem(String pem) {
+        String base64 = Arrays.stream(pem.split("\\R"))
+                .filter(line -> !line.startsWith("-----"))
+                .collect(Collectors.joining());
+        return Base64.getMimeDecoder().decode(base64);
+    }
+
+    private static Algorithm algorithmOf(PublicKey key) {
+        if (key instanceof ECPublicKey ecKey && ecKey.getParams().getCurve().getField().getFieldSize() == 256) {
+            return Algorithm.ES256;
+        }
+        if ("Ed25519".equals(key.getAlgorithm()) || "EdDSA".equals(key.getAlgorithm())) {
+            return Algorithm.EdDSA;
+        }
+        return null;
+    }
+
+    // ============ JWK ============
+
+    private static Map<String, Object> toJwk(KeyEntry key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        if (key.verificationKey() instanceof ECPublicKey ecKey) {
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", base64Url(unsignedFixed(ecKey.getW().getAffineX(), 32)));
+            jwk.put("y", base64Url(unsignedFixed(ecKey.getW().getAffineY(), 32)));
+        } else {
+            // X.509 de Ed25519: 12 bytes de cabecera + 32 bytes de clave
+            byte[] encoded = key.verificationKey().getEncoded();
+            jwk.put("kty", "OKP");
+            jwk.put("crv", "Ed25519");
+            jwk.put("x", base64Url(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+        }
+        jwk.put("kid", key.kid());
+        jwk.put("use", "sig");
+        jwk.put("alg", key.algorithm().name());
+        return jwk;
+    }
+
+    private static byte[] unsignedFixed(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length == length) {
+            return bytes;
+        }
+        byte[] fixed = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, fixed, length - copy, copy);
+        return fixed;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,17 @@
+package com.pokestore.poke_api.security;
+
+/**
+ * Datos del usuario autenticado extraídos de un JWT ya verificado.
+ * JwtAuthFilter lo guarda en el atributo "principal" del request.
+ *
+ * @param userId    ID del usuario (subject del token)
+ * @param email     email del usuario
+ * @param isAdmin   true si el usuario tiene rol de administrador
+ * @param jti       ID único del token (null en tokens emitidos antes de existir el claim)
+ * @param issuedAt  emisión del token (epoch millis)
+ * @param expiresAt expiración del token (epoch millis)
+ */
+public record JwtPrincipal(String userId, String email, boolean isAdmin, String jti, long issuedAt, long expiresAt) {
+
+    public static final String REQUEST_ATTRIBUTE = "principal";
+}
@@ -0,0 +1,10 @@
+package com.pokestore.poke_api.security;
+
+/**
+ * Nivel de acceso que exige un endpoint, según sus anotaciones @Authenticated / @AdminOnly
+ */
+public enum RequiredRole {
+    PUBLIC,
+    AUTHENTICATED,
+    ADMIN
+}
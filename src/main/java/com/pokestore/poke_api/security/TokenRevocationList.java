@@ -0,0 +1,115 @@
+package com.pokestore.poke_api.security;
+
+import com.pokestore.poke_api.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revocaciones de tokens en memoria.
+ * Se revoca un token puntual (por jti) o todos los tokens de un usuario emitidos antes de un
+ * instante (eliminación de la cuenta, cambio de rol). Cada entrada se descarta sola cuando ya no
+ * puede existir un token vigente que la necesite, así que comprobar una revocación es una
+ * búsqueda en un mapa y nunca una consulta a Supabase.
+ *
+ * Las revocaciones son locales a cada instancia de la API.
+ */
+@Component
+public class TokenRevocationList implements MetricsSource {
+
+    private static final Duration PURGE_INTERVAL = Duration.ofMinutes(1);
+
+    // jti -> expiración del token revocado (epoch millis)
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // userId -> instante de revocación; los tokens emitidos antes quedan inválidos
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    private final long maxTokenLifetimeMillis;
+    private final LongAdder rejectedTokens = new LongAdder();
+    private final Disposable purgeTask;
+
+    public TokenRevocationList(
+            @Value("${jwt.access-expiration:900000}") long accessExpiration,
+            @Value("${jwt.refresh-expiration:1209600000}") long refreshExpiration) {
+        this.maxTokenLifetimeMillis = Math.max(accessExpiration, refreshExpiration);
+        this.purgeTask = Flux.interval(PURGE_INTERVAL).subscribe(tick -> purgeExpired());
+    }
+
+    /**
+     * Revoca un token puntual hasta su expiración.
+     * Retorna false si ya estaba revocado (ej: dos usos concurrentes del mismo refresh token).
+     */
+    public boolean revokeToken(String jti, long expiresAtMillis) {
+        if (jti == null) {
+            return false;
+        }
+        return revokedTokens.putIfAbsent(jti, expiresAtMillis) == null;
+    }
+
+    /**
+     * Revoca todos los tokens del usuario emitidos en segundos anteriores al actual.
+     * iat no distingue instantes dentro de un mismo segundo, así que los emitidos en el segundo
+     * de la revocación siguen válidos; para invalidar uno puntual se usa revokeToken.
+     */
+    public void revokeUser(String userId) {
+        if (userId != null) {
+            revokedUsers.put(userId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * true si el token fue revocado por jti o emitido antes de revocar a su usuario
+     */
+    public boolean isRevoked(String jti, String userId, long issuedAtMillis) {
+        boolean revoked = (jti != null && revokedTokens.containsKey(jti)) || issuedBeforeUserRevocation(userId, issuedAtMillis);
+        if (revoked) {
+            rejectedTokens.increment();
+        }
+        return revoked;
+    }
+
+    @PreDestroy
+    public void stop() {
+        purgeTask.dispose();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "tokenRevocations";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("revokedTokens", revokedTokens.size());
+        metrics.put("revokedUsers", revokedUsers.size());
+        metrics.put("rejectedTokens", rejectedTokens.sum());
+        return metrics;
+    }
+
+    // ============ Métodos auxiliares ============
+
+    private boolean issuedBeforeUserRevocation(String userId, long issuedAtMillis) {
+        if (userId == null) {
+            return false;
+        }
+        Long revokedAt = revokedUsers.get(userId);
+        // iat tiene precisión de segundos: se compara por segundo para no rechazar un token emitido
+        // justo después de la revocación (ej: volver a iniciar sesión) dentro del mismo segundo
+        return revokedAt != null && issuedAtMillis / 1000 < revokedAt / 1000;
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedUsers.values().removeIf(revokedAt -> revokedAt + maxTokenLifetimeMillis <= now);
+    }
+}
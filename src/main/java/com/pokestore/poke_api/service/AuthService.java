@@ -1,8 +1,8 @@
 package com.pokestore.poke_api.service;
 
 import com.pokestore.poke_api.dto.*;
+import io.jsonwebtoken.JwtException;
 import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
@@ -15,50 +15,53 @@ public class AuthService {
 
     private final SupabaseService supabaseService;
     private final JwtService jwtService;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashing;
+    private final UserExistenceIndex existenceIndex;
 
-    public AuthService(SupabaseService supabaseService, JwtService jwtService) {
+    public AuthService(SupabaseService supabaseService, JwtService jwtService,
+                       PasswordHashingService passwordHashing, UserExistenceIndex existenceIndex) {
         this.supabaseService = supabaseService;
         this.jwtService = jwtService;
-        this.passwordEncoder = new BCryptPasswordEncoder();
+        this.passwordHashing = passwordHashing;
+        this.existenceIndex = existenceIndex;
     }
 
     /**
      * Registra un nuevo usuario
      */
     public Mono<AuthResponseDTO> register(CreateUserDTO createUserDTO) {
-        // Verificar si el email ya existe
-        return checkEmailExists(createUserDTO.getEmail())
+        // Verificar email y RUT en paralelo, siempre contra Supabase (el índice local puede estar desfasado)
+        return Mono.zip(
+                        queryExists("email", createUserDTO.getEmail()),
+                        queryExists("rut", createUserDTO.getRut()))
                 .flatMap(exists -> {
-                    if (exists) {
+                    if (exists.getT1()) {
                         return Mono.just(AuthResponseDTO.error("El email ya está registrado"));
                     }
-                    
-                    // Verificar si el RUT ya existe
-                    return checkRutExists(createUserDTO.getRut())
-                            .flatMap(rutExists -> {
-                                if (rutExists) {
-                                    return Mono.just(AuthResponseDTO.error("El RUT ya está registrado"));
-                                }
-                                
-                                // Crear usuario con password hasheado
+                    if (exists.getT2()) {
+                        return Mono.just(AuthResponseDTO.error("El RUT ya está registrado"));
+                    }
+
+                    // Crear usuario con password hasheado (fuera de los threads de Netty)
+                    return passwordHashing.encode(createUserDTO.getPassword())
+                            .flatMap(hashPass -> {
                                 Map<String, Object> userData = new HashMap<>();
                                 userData.put("username", createUserDTO.getUsername());
-                                userData.put("hash_pass", passwordEncoder.encode(createUserDTO.getPassword()));
+                                userData.put("hash_pass", hashPass);
                                 userData.put("email", createUserDTO.getEmail());
                                 userData.put("rut", createUserDTO.getRut());
                                 userData.put("isAdmin", createUserDTO.getIsAdmin() != null ? createUserDTO.getIsAdmin() : false);
-                                
-                                return supabaseService.insert("users", userData, 
-                                        new ParameterizedTypeReference<List<UserDTO>>() {})
-                                        .flatMap(list -> {
-                                            if (list == null || list.isEmpty()) {
-                                                return Mono.just(AuthResponseDTO.error("Error al crear usuario"));
-                                            }
-                                            UserDTO user = list.get(0);
-                                            String token = jwtService.generateToken(user.getId(), user.getEmail(), user.getIsAdmin());
-                                            return Mono.just(AuthResponseDTO.success("Usuario registrado exitosamente", user, token));
-                                        });
+
+                                return supabaseService.insert("users", userData,
+                                        new ParameterizedTypeReference<List<UserDTO>>() {});
+                            })
+                            .flatMap(list -> {
+                                if (list == null || list.isEmpty()) {
+                                    return Mono.just(AuthResponseDTO.error("Error al crear usuario"));
+                                }
+                                UserDTO user = list.get(0);
+                                existenceIndex.onUserSaved(user);
+                                return Mono.just(issueTokens("Usuario registrado exitosamente", user));
                             });
                 });
     }
@@ -67,9 +70,12 @@ public class AuthService {
      * Inicia sesión con email y password
      */
     public Mono<AuthResponseDTO> login(LoginDTO loginDTO) {
-        String filter = "email=eq." + loginDTO.getEmail();
+        PostgrestQuery query = PostgrestQuery.from("users")
+                .select(UserWithPasswordDTO.COLUMNS)
+                .eq("email", loginDTO.getEmail())
+                .limit(1);
         
-        return supabaseService.selectWithFilter("users", filter, 
+        return supabaseService.select(query, 
                 new ParameterizedTypeReference<List<UserWithPasswordDTO>>() {})
                 .flatMap(list -> {
                     if (list == null || list.isEmpty()) {
@@ -78,14 +84,48 @@ public class AuthService {
                     
                     UserWithPasswordDTO user = list.get(0);
                     
-                    // Verificar password
-                    if (!passwordEncoder.matches(loginDTO.getPassword(), user.getHashPass())) {
-                        return Mono.just(AuthResponseDTO.error("Contraseña incorrecta"));
+                    // Verificar password (fuera de los threads de Netty)
+                    return passwordHashing.matches(loginDTO.getPassword(), user.getHashPass())
+                            .map(matches -> {
+                                if (!matches) {
+                                    return AuthResponseDTO.error("Contraseña incorrecta");
+                                }
+                                if (passwordHashing.needsUpgrade(user.getHashPass())) {
+                                    upgradePasswordHash(user, loginDTO.getPassword());
+                                }
+                                return issueTokens("Login exitoso", user.toUserDTO());
+                            });
+                });
+    }
+
+    /**
+     * Canjea un refresh token por un nuevo access token y un nuevo refresh token.
+     * Los datos del usuario (email, rol) se leen de Supabase, por lo que un cambio de rol se
+     * refleja al refrescar. El refresh token usado queda revocado (rotación).
+     */
+    public Mono<AuthResponseDTO> refresh(String refreshToken) {
+        JwtService.RefreshToken verified;
+        try {
+            verified = jwtService.verifyRefreshToken(refreshToken);
+        } catch (JwtException e) {
+            return Mono.just(AuthResponseDTO.error("Refresh token inválido o expirado"));
+        }
+
+        PostgrestQuery query = PostgrestQuery.from("users")
+                .select(UserDTO.COLUMNS)
+                .eq("id", verified.userId())
+                .limit(1);
+
+        return supabaseService.select(query,
+                new ParameterizedTypeReference<List<UserDTO>>() {})
+                .map(list -> {
+                    if (list == null || list.isEmpty()) {
+                        return AuthResponseDTO.error("Usuario no encontrado");
                     }
-                    
-                    UserDTO userDTO = user.toUserDTO();
-                    String token = jwtService.generateToken(userDTO.getId(), userDTO.getEmail(), userDTO.getIsAdmin());
-                    return Mono.just(AuthResponseDTO.success("Login exitoso", userDTO, token));
+                    if (!jwtService.revokeRefreshToken(verified)) {
+                        return AuthResponseDTO.error("Refresh token inválido o expirado");
+                    }
+                    return issueTokens("Token renovado", list.get(0));
                 });
     }
 
@@ -93,9 +133,12 @@ public class AuthService {
      * Verifica si un usuario existe por email y devuelve su información
      */
     public Mono<AuthResponseDTO> verifyUser(String email) {
-        String filter = "email=eq." + email;
+        PostgrestQuery query = PostgrestQuery.from("users")
+                .select(UserDTO.COLUMNS)
+                .eq("email", email)
+                .limit(1);
         
-        return supabaseService.selectWithFilter("users", filter, 
+        return supabaseService.select(query, 
                 new ParameterizedTypeReference<List<UserDTO>>() {})
                 .flatMap(list -> {
                     if (list == null || list.isEmpty()) {
@@ -106,22 +149,52 @@ public class AuthService {
     }
 
     /**
-     * Verifica si un email ya existe
+     * Verifica si un email ya existe. Los negativos del índice local se responden sin ir a Supabase.
      */
     public Mono<Boolean> checkEmailExists(String email) {
-        String filter = "email=eq." + email;
-        return supabaseService.selectWithFilter("users", filter, 
-                new ParameterizedTypeReference<List<UserDTO>>() {})
-                .map(list -> list != null && !list.isEmpty())
-                .defaultIfEmpty(false);
+        if (!existenceIndex.mightContainEmail(email)) {
+            return Mono.just(false);
+        }
+        return queryExists("email", email);
     }
 
     /**
-     * Verifica si un RUT ya existe
+     * Verifica si un RUT ya existe. Los negativos del índice local se responden sin ir a Supabase.
      */
     public Mono<Boolean> checkRutExists(String rut) {
-        String filter = "rut=eq." + rut;
-        return supabaseService.selectWithFilter("users", filter, 
+        if (!existenceIndex.mightContainRut(rut)) {
+            return Mono.just(false);
+        }
+        return queryExists("rut", rut);
+    }
+
+    /**
+     * Regenera en segundo plano un hash con strength desactualizado y lo guarda en Supabase.
+     * No afecta la respuesta del login; si falla (ej: executor saturado) se reintenta en el próximo login.
+     */
+    private void upgradePasswordHash(UserWithPasswordDTO user, String rawPassword) {
+        passwordHashing.encode(rawPassword)
+                .flatMap(hashPass -> supabaseService.updateWhere(
+                        PostgrestQuery.from("users").select("id").eq("id", user.getId()),
+                        Map.of("hash_pass", hashPass),
+                        new ParameterizedTypeReference<List<UserDTO>>() {}))
+                .subscribe(
+                        updated -> System.out.println("Hash de contraseña actualizado a strength " + passwordHashing.getStrength() + " para el usuario " + user.getId()),
+                        e -> System.err.println("No se pudo actualizar el hash de contraseña: " + e.getMessage()));
+    }
+
+    private AuthResponseDTO issueTokens(String message, UserDTO user) {
+        String token = jwtService.generateToken(user.getId(), user.getEmail(), user.getIsAdmin());
+        String refreshToken = jwtService.generateRefreshToken(user.getId());
+        return AuthResponseDTO.success(message, user, token, refreshToken);
+    }
+
+    /**
+     * Consulta de existencia en Supabase: solo el id y a lo más una fila
+     */
+    private Mono<Boolean> queryExists(String column, String value) {
+        PostgrestQuery query = PostgrestQuery.from("users").select("id").eq(column, value).limit(1);
+        return supabaseService.select(query,
                 new ParameterizedTypeReference<List<UserDTO>>() {})
                 .map(list -> list != null && !list.isEmpty())
                 .defaultIfEmpty(false);
@@ -0,0 +1,12 @@
+package com.pokestore.poke_api.service;
+
+/**
+ * Se reutilizó un Idempotency-Key con un cuerpo distinto al de la petición original.
+ * El llamador debe responder 422 Unprocessable Entity.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super("El Idempotency-Key " + key + " ya se usó con una orden distinta");
+    }
+}
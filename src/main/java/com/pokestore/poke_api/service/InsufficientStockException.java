@@ -0,0 +1,25 @@
+package com.pokestore.poke_api.service;
+
+import java.util.UUID;
+
+/**
+ * No hay stock suficiente de un producto para reservar la cantidad pedida.
+ * El llamador debe responder 409 Conflict.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    private final UUID productId;
+    private final int requested;
+    private final long available;
+
+    public InsufficientStockException(UUID productId, int requested, long available) {
+        super("Stock insuficiente para el producto " + productId + ": pedido " + requested + ", disponible " + available);
+        this.productId = productId;
+        this.requested = requested;
+        this.available = available;
+    }
+
+    public UUID getProductId() { return productId; }
+    public int getRequested() { return requested; }
+    public long getAvailable() { return available; }
+}
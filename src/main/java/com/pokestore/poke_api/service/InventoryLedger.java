@@ -0,0 +1,434 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.CreateOrderItemDTO;
+import com.pokestore.poke_api.dto.OrderItemDTO;
+import com.pokestore.poke_api.dto.ProductDTO;
+import com.pokestore.poke_api.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock de productos en memoria, fuente de verdad para las reservas de las órdenes.
+ *
+ * - Se carga desde Supabase al iniciar (products.quantity).
+ * - createOrder reserva el stock de todos sus productos de forma atómica; cancelOrder lo libera.
+ *   Cada producto se protege con uno de N locks (lock striping), así que órdenes de productos
+ *   distintos no compiten entre sí y una orden toma sus locks siempre en el mismo orden.
+ * - Los cambios se escriben a Supabase en segundo plano (write-behind): en cada ciclo se hace un
+ *   solo PATCH por producto modificado, con su cantidad final, sin importar cuántas reservas hubo.
+ * - Una reconciliación periódica vuelve a leer el stock de Supabase y corrige la deriva de los
+ *   productos sin cambios pendientes (ej: stock modificado directamente en la base de datos).
+ *
+ * Mientras no se haya cargado el stock, las órdenes no se bloquean (no se reserva).
+ * El ledger asume una sola instancia de la API escribiendo el stock.
+ */
+@Service
+public class InventoryLedger implements MetricsSource {
+
+    private static final int FLUSH_CONCURRENCY = 4;
+
+    private static final class Stock {
+        long available;
+        boolean dirty;
+        // Hay un PATCH en curso con la cantidad de este producto: la base de datos aún no la refleja
+        boolean inFlight;
+        long lastChangeNanos;
+        // Reservas (negativo) y liberaciones (positivo) que la base de datos aún no refleja:
+        // las posteriores al último flush y las del PATCH en curso
+        long pendingDelta;
+        long inFlightDelta;
+
+        Stock(long available) {
+            this.available = available;
+        }
+    }
+
+    private final SupabaseService supabaseService;
+    private final boolean enabled;
+    private final ReentrantLock[] stripes;
+    private final Duration flushInterval;
+    private final Duration reconcileInterval;
+    private final Map<UUID, Stock> stock = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+    private final LongAdder flushedWrites = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder corrections = new LongAdder();
+    private Disposable flushTask;
+    private Disposable reconcileTask;
+
+    public InventoryLedger(
+            SupabaseService supabaseService,
+            @Value("${orders.inventory.enabled:true}") boolean enabled,
+            @Value("${orders.inventory.stripes:64}") int stripes,
+            @Value("${orders.inventory.flush-ms:1000}") long flushMillis,
+            @Value("${orders.inventory.reconcile-minutes:5}") long reconcileMinutes) {
+        this.supabaseService = supabaseService;
+        this.enabled = enabled;
+        this.stripes = new ReentrantLock[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.flushInterval = Duration.ofMillis(flushMillis);
+        this.reconcileInterval = Duration.ofMinutes(reconcileMinutes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // La primera reconciliación carga el stock inicial
+        reconcileTask = Flux.interval(Duration.ZERO, reconcileInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> reconcile().onErrorResume(e -> {
+                    System.err.println("Error al reconciliar el inventario: " + e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+        flushTask = Flux.interval(flushInterval, flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reconcileTask != null) {
+            reconcileTask.dispose();
+        }
+        if (flushTask != null) {
+            flushTask.dispose();
+            // Último intento de escribir lo pendiente
+            flush().block(Duration.ofSeconds(5));
+        }
+    }
+
+    /**
+     * Reserva el stock de todos los items o de ninguno.
+     * Lanza InsufficientStockException si algún producto no alcanza. Los productos que el
+     * ledger no conoce se ignoran (createOrder tampoco los incluye en la orden).
+     */
+    public void reserve(List<CreateOrderItemDTO> items) {
+        if (!enabled || !ready) {
+            return;
+        }
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        for (CreateOrderItemDTO item : items) {
+            if (item.getProductId() != null && item.getQuantity() != null && item.getQuantity() > 0) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+
+        List<ReentrantLock> locks = lockAll(quantities.keySet());
+        try {
+            for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+                Stock current = stock.get(entry.getKey());
+                if (current != null && current.available < entry.getValue()) {
+                    rejections.increment();
+                    throw new InsufficientStockException(entry.getKey(), entry.getValue(), current.available);
+                }
+            }
+            long now = System.nanoTime();
+            for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+                Stock current = stock.get(entry.getKey());
+                if (current != null) {
+                    current.available -= entry.getValue();
+                    current.pendingDelta -= entry.getValue();
+                    current.dirty = true;
+                    current.lastChangeNanos = now;
+                }
+            }
+            reservations.increment();
+        } finally {
+            locks.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    /**
+     * Devuelve al stock lo reservado por una orden que no se pudo crear
+     */
+    public void release(List<CreateOrderItemDTO> items) {
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        for (CreateOrderItemDTO item : items) {
+            if (item.getProductId() != null && item.getQuantity() != null && item.getQuantity() > 0) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        add(quantities);
+    }
+
+    /**
+     * Devuelve al stock los items de una orden cancelada
+     */
+    public void releaseOrderItems(List<OrderItemDTO> items) {
+        if (items == null) {
+            return;
+        }
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItemDTO item : items) {
+            if (item.getProductId() != null && item.getQuantity() != null && item.getQuantity() > 0) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        add(quantities);
+    }
+
+    /**
+     * Stock disponible de un producto, o null si el ledger no lo conoce
+     */
+    public Long getAvailable(UUID productId) {
+        ReentrantLock lock = stripeFor(productId);
+        lock.lock();
+        try {
+            Stock current = stock.get(productId);
+            return current != null ? current.available : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Un administrador fijó el stock de un producto (al crearlo o con un PATCH que incluye quantity).
+     *
+     * La cantidad escrita no incluye las reservas que el ledger aún no llevó a la base de datos, así
+     * que se le descuentan (y se suman las liberaciones) en vez de descartarlas. El producto queda
+     * con cambios pendientes: el siguiente flush escribe el valor rebasado, y también corrige la
+     * fila si un PATCH del ledger que ya estaba en curso llega después que el del administrador.
+     * Un PATCH sin quantity no toca el stock.
+     */
+    public void onStockSet(UUID productId, Integer quantity) {
+        if (productId == null || quantity == null) {
+            return;
+        }
+        ReentrantLock lock = stripeFor(productId);
+        lock.lock();
+        try {
+            Stock current = stock.get(productId);
+            if (current == null) {
+                stock.put(productId, new Stock(quantity));
+                return;
+            }
+            current.available = quantity + current.pendingDelta + current.inFlightDelta;
+            current.pendingDelta = 0;
+            current.inFlightDelta = 0;
+            current.dirty = true;
+            current.lastChangeNanos = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onProductDeleted(String productId) {
+        try {
+            UUID id = UUID.fromString(productId);
+            ReentrantLock lock = stripeFor(id);
+            lock.lock();
+            try {
+                stock.remove(id);
+            } finally {
+                lock.unlock();
+            }
+        } catch (IllegalArgumentException e) {
+            // ID inválido: no hay nada que eliminar
+        }
+    }
+
+    /**
+     * Escribe a Supabase la cantidad final de cada producto con cambios pendientes
+     */
+    public Mono<Void> flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        Map<UUID, Long> pending = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Stock> entry : stock.entrySet()) {
+            ReentrantLock lock = stripeFor(entry.getKey());
+            lock.lock();
+            try {
+                Stock current = entry.getValue();
+                if (current.dirty && !current.inFlight) {
+                    pending.put(entry.getKey(), current.available);
+                    current.dirty = false;
+                    current.inFlight = true;
+                    current.inFlightDelta = current.pendingDelta;
+                    current.pendingDelta = 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return Flux.fromIterable(pending.entrySet())
+                .flatMap(entry -> writeQuantity(entry.getKey(), entry.getValue()), FLUSH_CONCURRENCY)
+                .doFinally(signal -> flushing.set(false))
+                .then();
+    }
+
+    /**
+     * Relee el stock de Supabase. Los productos con cambios pendientes, con una escritura en curso
+     * o modificados (o escritos) durante la lectura conservan el valor en memoria; el resto toma
+     * el valor de la base de datos.
+     */
+    public Mono<Void> reconcile() {
+        long startedAt = System.nanoTime();
+        PostgrestQuery query = PostgrestQuery.from("products").select("id", "quantity");
+        return supabaseService.stream(query, ProductDTO.class, ProductDTO::getId)
+                .doOnNext(product -> {
+                    if (product.getId() == null || product.getQuantity() == null) {
+                        return;
+                    }
+                    ReentrantLock lock = stripeFor(product.getId());
+                    lock.lock();
+                    try {
+                        Stock current = stock.get(product.getId());
+                        if (current == null) {
+                            stock.put(product.getId(), new Stock(product.getQuantity()));
+                        } else if (!current.dirty && !current.inFlight && current.lastChangeNanos - startedAt < 0
+                                && current.available != product.getQuantity()) {
+                            current.available = product.getQuantity();
+                            corrections.increment();
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                })
+                .then(Mono.fromRunnable(() -> ready = true));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "inventory";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long dirty = stock.values().stream().filter(current -> current.dirty).count();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("ready", ready);
+        metrics.put("products", stock.size());
+        metrics.put("pendingWrites", dirty);
+        metrics.put("reservations", reservations.sum());
+        metrics.put("rejections", rejections.sum());
+        metrics.put("releases", releases.sum());
+        metrics.put("flushedWrites", flushedWrites.sum());
+        metrics.put("failedWrites", failedWrites.sum());
+        metrics.put("reconcileCorrections", corrections.sum());
+        return metrics;
+    }
+
+    // ============ Métodos auxiliares ============
+
+    private void add(Map<UUID, Integer> quantities) {
+        if (!enabled || quantities.isEmpty()) {
+            return;
+        }
+        List<ReentrantLock> locks = lockAll(quantities.keySet());
+        try {
+            long now = System.nanoTime();
+            for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+                Stock current = stock.get(entry.getKey());
+                if (current != null) {
+                    current.available += entry.getValue();
+                    current.pendingDelta += entry.getValue();
+                    current.dirty = true;
+                    current.lastChangeNanos = now;
+                }
+            }
+            releases.increment();
+        } finally {
+            locks.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    private Mono<Void> writeQuantity(UUID productId, long quantity) {
+        PostgrestQuery query = PostgrestQuery.from("products").select("id").eq("id", productId);
+        return supabaseService.updateWhere(query, Map.of("quantity", quantity),
+                        new ParameterizedTypeReference<List<ProductDTO>>() {})
+                .doOnNext(updated -> {
+                    if (updated.isEmpty()) {
+                        throw new IllegalStateException("Producto no actualizado: " + productId);
+                    }
+                    flushedWrites.increment();
+                })
+                .then(Mono.fromRunnable(() -> writeFinished(productId, true)))
+                .onErrorResume(e -> {
+                    // Se reintenta en el siguiente ciclo
+                    failedWrites.increment();
+                    writeFinished(productId, false);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Cierra la escritura en curso. Se marca como cambio reciente para que una reconciliación que
+     * leyó la fila antes de que llegara el PATCH no pise la memoria con el valor anterior.
+     */
+    private void writeFinished(UUID productId, boolean written) {
+        ReentrantLock lock = stripeFor(productId);
+        lock.lock();
+        try {
+            Stock current = stock.get(productId);
+            if (current != null) {
+                current.inFlight = false;
+                current.lastChangeNanos = System.nanoTime();
+                if (!written) {
+                    current.pendingDelta += current.inFlightDelta;
+                    current.dirty = true;
+                }
+                current.inFlightDelta = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Toma los locks de los productos en orden de stripe (sin repetir) para evitar deadlocks
+     */
+    private List<ReentrantLock> lockAll(Iterable<UUID> productIds) {
+        TreeMap<Integer, ReentrantLock> ordered = new TreeMap<>();
+        for (UUID productId : productIds) {
+            int index = stripeIndex(productId);
+            ordered.put(index, stripes[index]);
+        }
+        List<ReentrantLock> locked = new ArrayList<>(ordered.size());
+        for (ReentrantLock lock : ordered.values()) {
+            lock.lock();
+            locked.add(lock);
+        }
+        return locked;
+    }
+
+    private ReentrantLock stripeFor(UUID productId) {
+        return stripes[stripeIndex(productId)];
+    }
+
+    private int stripeIndex(UUID productId) {
+        return Math.floorMod(productId.hashCode(), stripes.length);
+    }
+}
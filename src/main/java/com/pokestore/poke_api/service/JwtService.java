@@ -1,51 +1,191 @@
 package com.pokestore.poke_api.service;
 
+import com.pokestore.poke_api.cache.TtlCache;
+import com.pokestore.poke_api.metrics.MetricsSource;
+import com.pokestore.poke_api.security.JwtKeyRing;
+import com.pokestore.poke_api.security.JwtPrincipal;
+import com.pokestore.poke_api.security.TokenRevocationList;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Emisión y verificación de JWT.
+ * Las claves vienen de JwtKeyRing (HS256, ES256 o EdDSA, rotables por kid); cada token lleva el kid
+ * de la clave con que se firmó y se verifica con la clave correspondiente.
+ * Se emiten access tokens de vida corta (typ=access) y refresh tokens (typ=refresh), ambos con jti.
+ * La clave y el parser se construyen una sola vez; los tokens verificados se guardan en una caché
+ * acotada (por digest SHA-256 del token y nunca más allá de su exp) para no repetir la verificación
+ * de la firma en cada request de la misma sesión. La revocación se comprueba siempre, también en los
+ * aciertos de la caché.
+ */
 @Service
-public class JwtService {
+public class JwtService implements MetricsSource {
 
-    @Value("${jwt.secret:defaultSecretKeyThatShouldBeAtLeast256BitsLong}")
-    private String secret;
+    public static final String TYPE_CLAIM = "typ";
+    public static final String ACCESS_TYPE = "access";
+    public static final String REFRESH_TYPE = "refresh";
 
-    @Value("${jwt.expiration:86400000}")
-    private long expiration;
+    /**
+     * Claims de un refresh token verificado
+     */
+    public record RefreshToken(String userId, String jti, long expiresAt) {
+    }
+
+    private final long accessExpiration;
+    private final long refreshExpiration;
+    private final long cacheTtlMillis;
+    private final TokenRevocationList revocations;
+    private final JwtKeyRing keyRing;
+    private final JwtParser parser;
+    private final TtlCache<String, JwtPrincipal> verifiedTokens;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    public JwtService(
+            JwtKeyRing keyRing,
+            @Value("${jwt.access-expiration:900000}") long accessExpiration,
+            @Value("${jwt.refresh-expiration:1209600000}") long refreshExpiration,
+            @Value("${jwt.verified-cache.ttl-seconds:300}") long cacheTtlSeconds,
+            @Value("${jwt.verified-cache.max-entries:10000}") int cacheMaxEntries,
+            TokenRevocationList revocations) {
+        this.accessExpiration = accessExpiration;
+        this.refreshExpiration = refreshExpiration;
+        this.revocations = revocations;
+        this.cacheTtlMillis = Duration.ofSeconds(cacheTtlSeconds).toMillis();
+        this.keyRing = keyRing;
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        JwtKeyRing.KeyEntry key = keyRing.verificationKey(header.getKeyId());
+                        if (key == null) {
+                            throw new UnsupportedJwtException("Clave de firma desconocida: " + header.getKeyId());
+                        }
+                        return key.verificationKey();
+                    }
+                })
+                .build();
+        this.verifiedTokens = new TtlCache<>(Duration.ofMillis(cacheTtlMillis), cacheMaxEntries);
     }
 
+    /**
+     * Genera un access token de vida corta (jwt.access-expiration)
+     */
     public String generateToken(UUID userId, String email, Boolean isAdmin) {
-        return Jwts.builder()
+        long now = System.currentTimeMillis();
+        return sign(Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(userId.toString())
                 .claim("email", email)
                 .claim("isAdmin", isAdmin)
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
-                .compact();
+                .claim(TYPE_CLAIM, ACCESS_TYPE)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + accessExpiration)));
+    }
+
+    /**
+     * Genera un refresh token (jwt.refresh-expiration). Solo sirve para /api/auth/refresh.
+     */
+    public String generateRefreshToken(UUID userId) {
+        long now = System.currentTimeMillis();
+        return sign(Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject(userId.toString())
+                .claim(TYPE_CLAIM, REFRESH_TYPE)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + refreshExpiration)));
+    }
+
+    /**
+     * Verifica un access token una sola vez y retorna sus datos.
+     * Lanza JwtException si la firma no es válida, el token expiró, fue revocado o es un refresh token.
+     */
+    public JwtPrincipal verify(String token) {
+        String key = digest(token);
+        JwtPrincipal cached = verifiedTokens.get(key);
+        if (cached != null) {
+            ensureNotRevoked(cached.jti(), cached.userId(), cached.issuedAt());
+            return cached;
+        }
+
+        Claims claims = validateToken(token);
+        if (REFRESH_TYPE.equals(claims.get(TYPE_CLAIM, String.class))) {
+            throw new JwtException("Se esperaba un access token");
+        }
+        JwtPrincipal principal = new JwtPrincipal(
+                claims.getSubject(),
+                claims.get("email", String.class),
+                Boolean.TRUE.equals(claims.get("isAdmin", Boolean.class)),
+                claims.getId(),
+                toMillis(claims.getIssuedAt(), 0),
+                toMillis(claims.getExpiration(), Long.MAX_VALUE));
+        ensureNotRevoked(principal.jti(), principal.userId(), principal.issuedAt());
+
+        // La entrada nunca sobrevive al exp del token
+        long cacheUntil = Math.min(principal.expiresAt(), System.currentTimeMillis() + cacheTtlMillis);
+        verifiedTokens.put(key, principal, cacheUntil);
+        return principal;
+    }
+
+    /**
+     * Verifica un refresh token. Lanza JwtException si no es válido, expiró, fue revocado
+     * o no es un refresh token.
+     */
+    public RefreshToken verifyRefreshToken(String token) {
+        Claims claims = validateToken(token);
+        if (!REFRESH_TYPE.equals(claims.get(TYPE_CLAIM, String.class))) {
+            throw new JwtException("Se esperaba un refresh token");
+        }
+        ensureNotRevoked(claims.getId(), claims.getSubject(), toMillis(claims.getIssuedAt(), 0));
+        return new RefreshToken(claims.getSubject(), claims.getId(), toMillis(claims.getExpiration(), Long.MAX_VALUE));
+    }
+
+    /**
+     * Revoca un refresh token al usarlo (rotación). Retorna false si otro request ya lo había usado.
+     */
+    public boolean revokeRefreshToken(RefreshToken refreshToken) {
+        return revocations.revokeToken(refreshToken.jti(), refreshToken.expiresAt());
+    }
+
+    /**
+     * Invalida todos los tokens emitidos hasta ahora para el usuario
+     */
+    public void revokeAllForUser(String userId) {
+        revocations.revokeUser(userId);
+    }
+
+    /**
+     * Conjunto de claves públicas (JWKS) para verificar los tokens fuera de esta API
+     */
+    public Map<String, Object> getJwks() {
+        return Map.of("keys", keyRing.publicJwks());
     }
 
     public Claims validateToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public boolean isTokenValid(String token) {
         try {
-            validateToken(token);
+            verify(token);
             return true;
         } catch (Exception e) {
             return false;
@@ -53,14 +193,58 @@ public class JwtService {
     }
 
     public String getUserIdFromToken(String token) {
-        return validateToken(token).getSubject();
+        return verify(token).userId();
     }
 
     public String getEmailFromToken(String token) {
-        return validateToken(token).get("email", String.class);
+        return verify(token).email();
     }
 
     public Boolean getIsAdminFromToken(String token) {
-        return validateToken(token).get("isAdmin", Boolean.class);
+        return verify(token).isAdmin();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "jwtVerifiedCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return verifiedTokens.stats();
+    }
+
+    // ============ Métodos auxiliares ============
+
+    /**
+     * Firma con la clave activa del anillo e incluye su kid en el header
+     */
+    private String sign(JwtBuilder builder) {
+        JwtKeyRing.KeyEntry key = keyRing.activeKey();
+        JwtBuilder withKid = builder.header().keyId(key.kid()).and();
+        return switch (key.algorithm()) {
+            case HS256 -> withKid.signWith((SecretKey) key.signingKey(), Jwts.SIG.HS256).compact();
+            case ES256 -> withKid.signWith((PrivateKey) key.signingKey(), Jwts.SIG.ES256).compact();
+            case EdDSA -> withKid.signWith((PrivateKey) key.signingKey(), Jwts.SIG.EdDSA).compact();
+        };
+    }
+
+    private void ensureNotRevoked(String jti, String userId, long issuedAt) {
+        if (revocations.isRevoked(jti, userId, issuedAt)) {
+            throw new JwtException("Token revocado");
+        }
+    }
+
+    private static long toMillis(Date date, long defaultValue) {
+        return date != null ? date.getTime() : defaultValue;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 }
@@ -0,0 +1,23 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.CreateOrderDTO;
+import com.pokestore.poke_api.dto.OrderDTO;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Creación atómica de una orden con todos sus items en una sola operación.
+ * OrderService la usa cuando orders.create.mode=rpc; si no hay implementación activa
+ * se usa el flujo de varias llamadas a PostgREST.
+ */
+public interface OrderCreationGateway {
+
+    /**
+     * Crea la orden con sus items y la retorna completa. Los precios se toman del catálogo
+     * al momento de crearla y los productos inexistentes se omiten.
+     * orderId null = el ID lo asigna la base de datos (el journal de recepción ya trae uno asignado).
+     * Retorna vacío si la orden no se pudo crear.
+     */
+    Mono<OrderDTO> createOrder(UUID orderId, String userId, CreateOrderDTO order);
+}
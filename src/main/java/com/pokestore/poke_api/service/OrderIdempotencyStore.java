@@ -0,0 +1,141 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.cache.TtlCache;
+import com.pokestore.poke_api.dto.CreateOrderDTO;
+import com.pokestore.poke_api.dto.CreateOrderItemDTO;
+import com.pokestore.poke_api.dto.OrderDTO;
+import com.pokestore.poke_api.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicación de POST /api/orders por header Idempotency-Key.
+ *
+ * La primera petición con una clave crea la orden; las repeticiones del mismo usuario con la
+ * misma clave reciben la misma orden (o esperan a que termine la creación en curso) sin volver
+ * a llamar a Supabase. Si la creación falla, la clave se libera para que el cliente reintente.
+ * Si quedó sin respuesta (la orden pudo crearse) la clave se conserva con el ID asignado a la
+ * orden, y el reintento la busca por ese ID en vez de crear otra.
+ * Las claves expiran tras orders.idempotency.ttl-hours y se guardan como máximo
+ * orders.idempotency.max-entries. Al llenarse se expulsan solo claves de órdenes ya creadas:
+ * una creación en curso nunca pierde su clave (si todas están en curso la caché crece por sobre
+ * el máximo y lo cuenta en overflows).
+ */
+@Component
+public class OrderIdempotencyStore implements MetricsSource {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final class Entry {
+        private final String fingerprint;
+        private volatile Mono<OrderDTO> result;
+        private volatile boolean completed;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private final TtlCache<String, Entry> entries;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder unresolved = new LongAdder();
+
+    public OrderIdempotencyStore(
+            @Value("${orders.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${orders.idempotency.max-entries:10000}") int maxEntries) {
+        this.entries = new TtlCache<>(Duration.ofHours(ttlHours), maxEntries, entry -> entry.completed);
+    }
+
+    /**
+     * Crea la orden con create solo si (userId, key) no se usó antes.
+     * Lanza IdempotencyKeyReusedException si la clave ya se usó con otro cuerpo.
+     * resume retoma por ID una creación que terminó en OrderOutcomeUnknownException.
+     */
+    public Mono<OrderDTO> execute(String userId, String key, CreateOrderDTO order, Supplier<Mono<OrderDTO>> create,
+                                  Function<UUID, Mono<OrderDTO>> resume) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new IllegalArgumentException("Idempotency-Key inválido"));
+        }
+        String cacheKey = userId + ":" + key;
+        String fingerprint = fingerprint(order);
+
+        // La creación se comparte: todos los suscriptores reciben el mismo resultado
+        Entry entry = new Entry(fingerprint);
+        entry.result = attempt(cacheKey, entry, create, resume, null);
+
+        Entry existing = entries.putIfAbsent(cacheKey, entry);
+        if (existing == null) {
+            created.increment();
+            return entry.result;
+        }
+        if (!existing.fingerprint.equals(fingerprint)) {
+            mismatched.increment();
+            return Mono.error(new IdempotencyKeyReusedException(key));
+        }
+        replayed.increment();
+        return existing.result;
+    }
+
+    /**
+     * Un intento de creación compartido. orderId es el ID de una creación anterior sin respuesta:
+     * mientras no se sepa si la orden existe (Supabase sigue caído o vuelve a no responder) la
+     * entrada se conserva y el siguiente reintento la retoma por ese ID.
+     */
+    private Mono<OrderDTO> attempt(String cacheKey, Entry entry, Supplier<Mono<OrderDTO>> create,
+                                   Function<UUID, Mono<OrderDTO>> resume, UUID orderId) {
+        return Mono.defer(create)
+                .doOnSuccess(created -> entry.completed = true)
+                .doOnError(e -> {
+                    UUID pendingId = e instanceof OrderOutcomeUnknownException unknown ? unknown.getOrderId()
+                            : e instanceof SupabaseUnavailableException ? orderId : null;
+                    if (pendingId == null) {
+                        entries.remove(cacheKey, entry);
+                        return;
+                    }
+                    unresolved.increment();
+                    entry.result = attempt(cacheKey, entry, () -> resume.apply(pendingId), resume, pendingId);
+                })
+                .cache();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderIdempotency";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>(entries.stats());
+        metrics.put("created", created.sum());
+        metrics.put("replayed", replayed.sum());
+        metrics.put("mismatched", mismatched.sum());
+        metrics.put("unresolved", unresolved.sum());
+        return metrics;
+    }
+
+    /**
+     * Representación estable del cuerpo de la orden para detectar claves reutilizadas
+     */
+    private String fingerprint(CreateOrderDTO order) {
+        StringBuilder builder = new StringBuilder()
+                .append(order.getShippingAddress()).append('|')
+                .append(order.getNotes()).append('|');
+        if (order.getItems() != null) {
+            for (CreateOrderItemDTO item : order.getItems()) {
+                builder.append(item.getProductId()).append('x').append(item.getQuantity()).append(';');
+            }
+        }
+        return builder.toString();
+    }
+}
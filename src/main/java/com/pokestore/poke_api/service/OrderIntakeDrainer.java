@@ -0,0 +1,159 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Envía a Supabase las órdenes pendientes de OrderIntakeJournal, en lotes de
+ * orders.intake.batch-size cada orders.intake.drain-ms, y las marca como completadas.
+ *
+ * Cualquier error se reintenta con backoff exponencial (hasta 30 s) sin límite de intentos,
+ * incluidos los timeouts de escritura: la orden ya se le confirmó al cliente y pudo haberse
+ * creado igual. Solo un rechazo explícito de Supabase (4xx, ej: el producto o el usuario ya no
+ * existen) cuenta para orders.intake.max-rejections; al llegar al máximo la orden se marca
+ * fallida, se devuelve su stock y se registra en el log de errores para revisión manual.
+ */
+@Component
+@ConditionalOnProperty(name = "orders.intake.mode", havingValue = "journal")
+public class OrderIntakeDrainer implements MetricsSource {
+
+    private static final long BASE_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static final class Attempts {
+        int failures;
+        int rejections;
+        long nextAttemptNanos;
+    }
+
+    private final OrderIntakeJournal journal;
+    private final OrderService orderService;
+    private final Duration drainInterval;
+    private final int batchSize;
+    private final int concurrency;
+    private final int maxRejections;
+
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Attempts> attempts = new ConcurrentHashMap<>();
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private Disposable drainTask;
+
+    public OrderIntakeDrainer(
+            OrderIntakeJournal journal,
+            OrderService orderService,
+            @Value("${orders.intake.drain-ms:200}") long drainMillis,
+            @Value("${orders.intake.batch-size:50}") int batchSize,
+            @Value("${orders.intake.concurrency:4}") int concurrency,
+            @Value("${orders.intake.max-rejections:5}") int maxRejections) {
+        this.journal = journal;
+        this.orderService = orderService;
+        this.drainInterval = Duration.ofMillis(drainMillis);
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.maxRejections = maxRejections;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        drainTask = Flux.interval(Duration.ZERO, drainInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> drain())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.dispose();
+        }
+    }
+
+    /**
+     * Envía el siguiente lote de órdenes pendientes que no estén en curso ni esperando su backoff
+     */
+    public Mono<Void> drain() {
+        long now = System.nanoTime();
+        List<OrderIntakeJournal.IntakeEntry> batch = journal.pending(batchSize, entry -> {
+            Attempts previous = attempts.get(entry.orderId());
+            return !inFlight.contains(entry.orderId())
+                    && (previous == null || previous.nextAttemptNanos - now <= 0);
+        });
+        batch.forEach(entry -> inFlight.add(entry.orderId()));
+
+        return Flux.fromIterable(batch)
+                .flatMap(this::drainOne, concurrency)
+                .then();
+    }
+
+    private Mono<Void> drainOne(OrderIntakeJournal.IntakeEntry entry) {
+        return orderService.persistAcceptedOrder(entry)
+                .switchIfEmpty(Mono.error(new SupabaseRejectedException("Supabase no creó la orden")))
+                .flatMap(order -> journal.markDone(entry.orderId()))
+                .doOnSuccess(done -> {
+                    attempts.remove(entry.orderId());
+                    persisted.increment();
+                })
+                .onErrorResume(e -> onFailure(entry, e))
+                .doFinally(signal -> inFlight.remove(entry.orderId()));
+    }
+
+    private Mono<Void> onFailure(OrderIntakeJournal.IntakeEntry entry, Throwable error) {
+        Attempts state = attempts.computeIfAbsent(entry.orderId(), id -> new Attempts());
+        state.failures++;
+        // Solo un 4xx es definitivo; Supabase caído o lento, un resultado desconocido o el journal
+        // saturado se reintentan siempre
+        if (error instanceof SupabaseRejectedException && ++state.rejections >= maxRejections) {
+            return journal.markFailed(entry.orderId())
+                    .doOnSuccess(done -> {
+                        attempts.remove(entry.orderId());
+                        rejected.increment();
+                        orderService.releaseRejectedOrder(entry);
+                        System.err.println("Orden " + entry.orderId() + " del usuario " + entry.userId()
+                                + " descartada tras " + state.rejections + " rechazos de Supabase: "
+                                + error.getMessage());
+                    })
+                    .onErrorResume(e -> Mono.empty());
+        }
+
+        retried.increment();
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(state.failures, 10));
+        state.nextAttemptNanos = System.nanoTime() + Duration.ofMillis(backoff).toNanos();
+        return Mono.empty();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderIntakeDrainer";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", journal.pendingCount());
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("backingOff", attempts.size());
+        metrics.put("persisted", persisted.sum());
+        metrics.put("retried", retried.sum());
+        metrics.put("rejected", rejected.sum());
+        return metrics;
+    }
+}
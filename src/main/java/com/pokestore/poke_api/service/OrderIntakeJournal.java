@@ -0,0 +1,506 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.CreateOrderDTO;
+import com.pokestore.poke_api.dto.CreateOrderItemDTO;
+import com.pokestore.poke_api.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal local de órdenes aceptadas (orders.intake.mode=journal).
+ *
+ * Cada orden validada se agrega a un log append-only en segmentos de archivo mapeados en memoria
+ * (orders.intake.dir, orders.intake.segment-mb) y se confirma al cliente solo cuando el registro
+ * está en disco. Un único thread escritor toma todas las escrituras pendientes, las copia al
+ * segmento activo y hace un solo force() por lote (group commit), de modo que el costo de
+ * sincronizar con el disco se reparte entre todas las órdenes que llegaron mientras tanto.
+ *
+ * OrderIntakeDrainer envía las órdenes pendientes a Supabase y luego registra un marcador de
+ * completada (o fallida) para cada una. Al reiniciar se releen todos los segmentos y las órdenes
+ * sin marcador vuelven a quedar pendientes. Los segmentos más antiguos se borran cuando todas
+ * sus órdenes están completadas.
+ *
+ * Formato de cada registro: [largo int][crc32c int][tipo byte][payload]. Un largo 0 (el resto
+ * del segmento está en ceros) o un CRC inválido marcan el final de los datos válidos del segmento;
+ * un registro a medio escribir nunca se confirmó al cliente.
+ */
+@Component
+@ConditionalOnProperty(name = "orders.intake.mode", havingValue = "journal")
+public class OrderIntakeJournal implements MetricsSource {
+
+    private static final byte ACCEPTED = 1;
+    private static final byte DONE = 2;
+    private static final byte FAILED = 3;
+    private static final int HEADER_SIZE = 9;
+    private static final int MAX_BATCH = 512;
+
+    /**
+     * Orden aceptada: su ID ya está asignado y se usa también como ID en Supabase
+     */
+    public record IntakeEntry(UUID orderId, String userId, CreateOrderDTO order, Instant acceptedAt) {
+    }
+
+    private record PendingWrite(byte type, byte[] payload, IntakeEntry entry, UUID orderId,
+                                CompletableFuture<Void> result) {
+    }
+
+    private static final class Segment {
+        final long sequence;
+        final Path path;
+        final MappedByteBuffer buffer;
+        int outstanding;
+
+        Segment(long sequence, Path path, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final BlockingQueue<PendingWrite> queue;
+
+    // Órdenes aceptadas sin marcador, en orden de llegada
+    private final ConcurrentSkipListMap<Long, IntakeEntry> pending = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextPendingKey = new AtomicLong();
+
+    // Solo los usa el thread escritor (y la relectura inicial, antes de iniciarlo)
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<UUID, Long> pendingKeyByOrder = new HashMap<>();
+    private final Map<UUID, Segment> segmentByOrder = new HashMap<>();
+    private Segment active;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder groupCommits = new LongAdder();
+    private final LongAdder committedRecords = new LongAdder();
+    private volatile long lastForceMicros;
+    private volatile int replayed;
+
+    public OrderIntakeJournal(
+            @Value("${orders.intake.dir:data/order-intake}") String directory,
+            @Value("${orders.intake.segment-mb:16}") int segmentMegabytes,
+            @Value("${orders.intake.queue-capacity:10000}") int queueCapacity) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentMegabytes * 1024 * 1024;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+
+        Files.createDirectories(this.directory);
+        replay();
+        roll();
+
+        this.writer = new Thread(this::writeLoop, "order-intake-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // El escritor termina de vaciar la cola antes de salir
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Agrega una orden validada al journal. Completa cuando el registro ya está en disco.
+     */
+    public Mono<IntakeEntry> append(String userId, CreateOrderDTO order) {
+        IntakeEntry entry = new IntakeEntry(UUID.randomUUID(), userId, order, Instant.now());
+        byte[] payload = encode(entry);
+        if (payload.length > segmentSize - HEADER_SIZE) {
+            return Mono.error(new IllegalArgumentException("La orden es demasiado grande"));
+        }
+        return submit(new PendingWrite(ACCEPTED, payload, entry, entry.orderId(), new CompletableFuture<>()))
+                .thenReturn(entry);
+    }
+
+    /**
+     * Registra que la orden ya está en Supabase; deja de estar pendiente
+     */
+    public Mono<Void> markDone(UUID orderId) {
+        return submit(new PendingWrite(DONE, uuidBytes(orderId), null, orderId, new CompletableFuture<>()));
+    }
+
+    /**
+     * Registra que la orden no se podrá crear nunca (ej: Supabase la rechazó); deja de estar pendiente
+     */
+    public Mono<Void> markFailed(UUID orderId) {
+        return submit(new PendingWrite(FAILED, uuidBytes(orderId), null, orderId, new CompletableFuture<>()));
+    }
+
+    /**
+     * Hasta limit órdenes pendientes, las más antiguas primero, que cumplan el filtro
+     */
+    public List<IntakeEntry> pending(int limit, Predicate<IntakeEntry> filter) {
+        List<IntakeEntry> result = new ArrayList<>();
+        for (IntakeEntry entry : pending.values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (filter.test(entry)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderIntake";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long commits = groupCommits.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", pending.size());
+        metrics.put("replayed", replayed);
+        metrics.put("appended", appended.sum());
+        metrics.put("completed", completed.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("queued", queue.size());
+        metrics.put("groupCommits", commits);
+        metrics.put("averageBatch", commits > 0 ? (double) committedRecords.sum() / commits : 0.0);
+        metrics.put("lastForceMicros", lastForceMicros);
+        return metrics;
+    }
+
+    // ============ Escritura ============
+
+    private Mono<Void> submit(PendingWrite write) {
+        if (!running || !queue.offer(write)) {
+            return Mono.error(new OrderIntakeUnavailableException("Demasiadas órdenes en espera de ser registradas"));
+        }
+        // Si el cliente se desconecta el registro igual se escribe
+        return Mono.fromFuture(write.result(), true);
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                System.err.println("Error al escribir en el journal de órdenes: " + e.getMessage());
+                batch.forEach(write -> write.result().completeExceptionally(
+                        new OrderIntakeUnavailableException("No se pudo registrar la orden")));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Escribe el lote y sincroniza una sola vez por segmento tocado. Cada tramo escrito en un
+     * segmento se confirma por separado: recién después del force() se actualiza el estado en
+     * memoria y se responde a los llamadores de ese tramo. Si falla la escritura o el force() el
+     * tramo se deshace (ver rollback), así que una orden informada como no registrada nunca
+     * reaparece al releer el journal. Los tramos ya confirmados no se ven afectados.
+     */
+    private void commit(List<PendingWrite> batch) throws IOException {
+        int from = 0;
+        while (from < batch.size()) {
+            if (active.buffer.remaining() < recordSize(batch.get(from))) {
+                roll();
+            }
+            long started = System.nanoTime();
+            Segment segment = active;
+            int start = segment.buffer.position();
+            int to = from;
+            try {
+                while (to < batch.size() && segment.buffer.remaining() >= recordSize(batch.get(to))) {
+                    PendingWrite write = batch.get(to++);
+                    segment.buffer.putInt(write.payload().length);
+                    segment.buffer.putInt(checksum(write.type(), write.payload()));
+                    segment.buffer.put(write.type());
+                    segment.buffer.put(write.payload());
+                }
+                segment.buffer.force(start, segment.buffer.position() - start);
+            } catch (RuntimeException | InternalError e) {
+                // InternalError: fallo de E/S al tocar la página mapeada (ej: disco lleno)
+                rollback(segment, start);
+                throw new IOException("No se pudo sincronizar el journal", e);
+            }
+            lastForceMicros = (System.nanoTime() - started) / 1000;
+            groupCommits.increment();
+            committedRecords.add(to - from);
+
+            for (int i = from; i < to; i++) {
+                apply(batch.get(i), segment);
+                batch.get(i).result().complete(null);
+            }
+            from = to;
+        }
+        deleteCompletedSegments();
+    }
+
+    /**
+     * Deshace un tramo no confirmado: pone en cero sus bytes (un largo 0 marca el final de los datos
+     * válidos) y retrocede la posición para que el siguiente lote lo sobrescriba. Si ni siquiera se
+     * puede limpiar, el segmento deja de usarse y se continúa en uno nuevo.
+     */
+    private void rollback(Segment segment, int start) {
+        int end = segment.buffer.position();
+        try {
+            for (int i = start; i < end; i++) {
+                segment.buffer.put(i, (byte) 0);
+            }
+            segment.buffer.position(start);
+            segment.buffer.force(start, end - start);
+        } catch (RuntimeException | InternalError e) {
+            System.err.println("No se pudo deshacer el lote en " + segment.path + ", se continúa en un segmento nuevo: "
+                    + e.getMessage());
+            try {
+                roll();
+            } catch (IOException rollError) {
+                // Se reintenta al escribir el siguiente lote: el segmento sigue sin espacio libre
+                segment.buffer.position(segment.buffer.limit());
+            }
+        }
+    }
+
+    private static int recordSize(PendingWrite write) {
+        return HEADER_SIZE + write.payload().length;
+    }
+
+    private void apply(PendingWrite write, Segment segment) {
+        if (write.type() == ACCEPTED) {
+            appended.increment();
+            addPending(write.entry(), segment);
+        } else {
+            if (write.type() == DONE) {
+                completed.increment();
+            } else {
+                failed.increment();
+            }
+            removePending(write.orderId());
+        }
+    }
+
+    private void addPending(IntakeEntry entry, Segment segment) {
+        long key = nextPendingKey.getAndIncrement();
+        pending.put(key, entry);
+        pendingKeyByOrder.put(entry.orderId(), key);
+        segmentByOrder.put(entry.orderId(), segment);
+        segment.outstanding++;
+    }
+
+    private void removePending(UUID orderId) {
+        Long key = pendingKeyByOrder.remove(orderId);
+        if (key != null) {
+            pending.remove(key);
+        }
+        Segment segment = segmentByOrder.remove(orderId);
+        if (segment != null) {
+            segment.outstanding--;
+        }
+    }
+
+    /**
+     * Borra desde el más antiguo los segmentos sin órdenes pendientes. Se borran solo en orden para
+     * que un marcador de completada nunca desaparezca antes que la orden a la que se refiere.
+     */
+    private void deleteCompletedSegments() {
+        while (segments.size() > 1 && segments.peekFirst().outstanding == 0) {
+            Segment oldest = segments.pollFirst();
+            try {
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                System.err.println("No se pudo borrar el segmento " + oldest.path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        long sequence = active != null ? active.sequence + 1
+                : segments.isEmpty() ? 0 : segments.peekLast().sequence + 1;
+        Path path = directory.resolve(String.format("intake-%016d.log", sequence));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            active = new Segment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+        segments.addLast(active);
+    }
+
+    // ============ Relectura al iniciar ============
+
+    private void replay() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "intake-*.log")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                files.put(Long.parseLong(name.substring("intake-".length(), name.length() - ".log".length())), path);
+            }
+        }
+
+        for (Map.Entry<Long, Path> file : files.entrySet()) {
+            // Los segmentos anteriores solo se leen; las escrituras nuevas van a un segmento nuevo
+            Segment segment = new Segment(file.getKey(), file.getValue(), null);
+            segments.addLast(segment);
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.getValue()));
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining() - (HEADER_SIZE - 4)) {
+                    break;
+                }
+                int crc = buffer.getInt();
+                byte type = buffer.get();
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                if (checksum(type, payload) != crc) {
+                    System.err.println("Registro corrupto en " + file.getValue() + ", se ignora el resto del segmento");
+                    break;
+                }
+                if (type == ACCEPTED) {
+                    addPending(decode(payload), segment);
+                } else {
+                    removePending(uuidFromBytes(payload));
+                }
+            }
+        }
+        replayed = pending.size();
+        deleteCompletedSegments();
+        if (replayed > 0) {
+            System.out.println("Journal de órdenes: " + replayed + " órdenes pendientes de enviar a Supabase");
+        }
+    }
+
+    // ============ Codificación ============
+
+    private static int checksum(byte type, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(IntakeEntry entry) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeUuid(out, entry.orderId());
+            out.writeUTF(entry.userId());
+            out.writeLong(entry.acceptedAt().toEpochMilli());
+            writeNullable(out, entry.order().getShippingAddress());
+            writeNullable(out, entry.order().getNotes());
+            List<CreateOrderItemDTO> items = entry.order().getItems();
+            out.writeInt(items.size());
+            for (CreateOrderItemDTO item : items) {
+                if (item.getProductId() == null) {
+                    throw new IllegalArgumentException("Todos los productos deben tener ID");
+                }
+                writeUuid(out, item.getProductId());
+                out.writeInt(item.getQuantity() != null ? item.getQuantity() : 0);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (UTFDataFormatException e) {
+            throw new IllegalArgumentException("La orden es demasiado grande");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static IntakeEntry decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        UUID orderId = readUuid(in);
+        String userId = in.readUTF();
+        Instant acceptedAt = Instant.ofEpochMilli(in.readLong());
+        String shippingAddress = readNullable(in);
+        String notes = readNullable(in);
+        int count = in.readInt();
+        List<CreateOrderItemDTO> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new CreateOrderItemDTO(readUuid(in), in.readInt()));
+        }
+        return new IntakeEntry(orderId, userId, new CreateOrderDTO(shippingAddress, notes, items), acceptedAt);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID value) throws IOException {
+        out.writeLong(value.getMostSignificantBits());
+        out.writeLong(value.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static byte[] uuidBytes(UUID value) {
+        return ByteBuffer.allocate(16)
+                .putLong(value.getMostSignificantBits())
+                .putLong(value.getLeastSignificantBits())
+                .array();
+    }
+
+    private static UUID uuidFromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
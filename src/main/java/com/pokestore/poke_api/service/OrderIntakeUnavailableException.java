@@ -0,0 +1,12 @@
+package com.pokestore.poke_api.service;
+
+/**
+ * El journal de recepción de órdenes no puede aceptar más escrituras (cola llena o detenido).
+ * El llamador debe responder 503 para que el cliente reintente más tarde.
+ */
+public class OrderIntakeUnavailableException extends RuntimeException {
+
+    public OrderIntakeUnavailableException(String message) {
+        super(message);
+    }
+}
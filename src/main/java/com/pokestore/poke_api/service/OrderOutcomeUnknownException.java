@@ -0,0 +1,22 @@
+package com.pokestore.poke_api.service;
+
+import java.util.UUID;
+
+/**
+ * La creación de una orden quedó sin respuesta de Supabase: la orden pudo haberse creado.
+ * Lleva el ID que se le asignó para que un reintento la busque (OrderService.resumeOrder)
+ * en vez de crear otra.
+ */
+public class OrderOutcomeUnknownException extends SupabaseWriteOutcomeUnknownException {
+
+    private final UUID orderId;
+
+    public OrderOutcomeUnknownException(UUID orderId, Throwable cause) {
+        super("Sin confirmación de la creación de la orden " + orderId, cause);
+        this.orderId = orderId;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+}
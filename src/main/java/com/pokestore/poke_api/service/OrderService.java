@@ -1,8 +1,10 @@
 package com.pokestore.poke_api.service;
 
 import com.pokestore.poke_api.dto.*;
+import com.pokestore.poke_api.model.OrderStatus;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
@@ -12,30 +14,77 @@ import java.util.*;
 public class OrderService {
 
     private final SupabaseService supabaseService;
-
-    // Estados válidos para las órdenes
-    private static final Set<String> VALID_STATUSES = Set.of(
-            "pending", "paid", "processing", "shipped", "delivered", "cancelled"
-    );
-
-    public OrderService(SupabaseService supabaseService) {
+    // Presente solo con orders.create.mode=rpc
+    private final OrderCreationGateway creationGateway;
+    private final InventoryLedger inventoryLedger;
+    private final OrderStatusEvents statusEvents;
+    private final OrderStatistics statistics;
+    // Presente solo con orders.intake.mode=journal
+    private final OrderIntakeJournal intakeJournal;
+
+    // Orden con sus items embebidos en la misma respuesta (resource embedding de PostgREST)
+    private static final String COLUMNS_WITH_ITEMS = OrderDTO.COLUMNS + ",items:order_items(" + OrderItemDTO.COLUMNS + ")";
+
+    // Cantidad de órdenes cuyos items se piden en una sola consulta (limita el largo de la URL)
+    private static final int ITEMS_BATCH_SIZE = 100;
+    private static final int ITEMS_BATCH_CONCURRENCY = 4;
+
+    public OrderService(SupabaseService supabaseService, Optional<OrderCreationGateway> creationGateway,
+                        InventoryLedger inventoryLedger, OrderStatusEvents statusEvents,
+                        OrderStatistics statistics, Optional<OrderIntakeJournal> intakeJournal) {
         this.supabaseService = supabaseService;
+        this.creationGateway = creationGateway.orElse(null);
+        this.inventoryLedger = inventoryLedger;
+        this.statusEvents = statusEvents;
+        this.statistics = statistics;
+        this.intakeJournal = intakeJournal.orElse(null);
     }
 
     /**
      * Obtener todas las órdenes (solo admin)
      */
     public Mono<List<OrderDTO>> getAllOrders() {
-        return supabaseService.selectAll("orders", new ParameterizedTypeReference<List<OrderDTO>>() {})
+        return supabaseService.select(ordersQuery(), new ParameterizedTypeReference<List<OrderDTO>>() {})
+                .flatMap(this::enrichOrdersWithItems);
+    }
+
+    /**
+     * Obtener una página de órdenes usando paginación por cursor (solo admin)
+     */
+    public Mono<List<OrderDTO>> getOrdersPage(String after, int limit) {
+        return supabaseService.selectPage(ordersQuery(), after, limit, new ParameterizedTypeReference<List<OrderDTO>>() {})
                 .flatMap(this::enrichOrdersWithItems);
     }
 
+    /**
+     * Obtener un rango de órdenes usando el header Range de PostgREST (solo admin)
+     */
+    public Mono<SupabaseService.RangeResult<OrderDTO>> getOrdersRange(long from, long to) {
+        return supabaseService.selectRange(ordersQuery(), from, to, new ParameterizedTypeReference<List<OrderDTO>>() {})
+                .flatMap(result -> enrichOrdersWithItems(result.items())
+                        .map(orders -> new SupabaseService.RangeResult<>(orders, result.contentRange())));
+    }
+
+    /**
+     * Recorrer todas las órdenes en streaming con sus items (solo admin).
+     * Las órdenes se decodifican a medida que llegan y se enriquecen por lotes.
+     */
+    public Flux<OrderDTO> streamAllOrders() {
+        return streamWithItems(ordersQuery());
+    }
+
+    /**
+     * Recorrer las órdenes de un usuario en streaming con sus items
+     */
+    public Flux<OrderDTO> streamOrdersByUserId(String userId) {
+        return streamWithItems(ordersQuery().eq("user_id", userId));
+    }
+
     /**
      * Obtener órdenes de un usuario específico
      */
     public Mono<List<OrderDTO>> getOrdersByUserId(String userId) {
-        String filter = "user_id=eq." + userId;
-        return supabaseService.selectWithFilter("orders", filter, new ParameterizedTypeReference<List<OrderDTO>>() {})
+        return supabaseService.select(ordersQuery().eq("user_id", userId), new ParameterizedTypeReference<List<OrderDTO>>() {})
                 .flatMap(this::enrichOrdersWithItems);
     }
 
@@ -43,7 +92,7 @@ public class OrderService {
      * Obtener una orden por ID
      */
     public Mono<OrderDTO> getOrderById(String orderId) {
-        return supabaseService.selectById("orders", orderId, new ParameterizedTypeReference<List<OrderDTO>>() {})
+        return supabaseService.select(ordersQuery().eq("id", orderId), new ParameterizedTypeReference<List<OrderDTO>>() {})
                 .flatMap(orders -> {
                     if (orders == null || orders.isEmpty()) {
                         return Mono.empty();
@@ -53,13 +102,125 @@ public class OrderService {
     }
 
     /**
-     * Crear una nueva orden
+     * Crear una nueva orden.
+     * Con orders.create.mode=rpc se crea en una sola llamada atómica; si no, con varias llamadas a PostgREST.
+     * Con orders.intake.mode=journal la orden solo se registra en el journal local y se retorna
+     * provisoria (ID asignado, sin total ni items); se crea en Supabase en segundo plano.
+     * Lanza InsufficientStockException si algún producto no tiene stock suficiente.
      */
     public Mono<OrderDTO> createOrder(String userId, CreateOrderDTO createOrderDTO) {
+        return createOrder(userId, createOrderDTO, null);
+    }
+
+    /**
+     * Retoma una creación que terminó en OrderOutcomeUnknownException, con el mismo ID: si la orden
+     * quedó creada se retorna (completando sus items si faltan) y si no, se crea de nuevo.
+     * Si la orden existe su stock sigue reservado; si no, ya se devolvió y se vuelve a reservar.
+     */
+    public Mono<OrderDTO> resumeOrder(UUID orderId, String userId, CreateOrderDTO createOrderDTO) {
+        return getOrderById(orderId.toString())
+                .flatMap(existing -> completeItems(existing, createOrderDTO))
+                .doOnNext(statistics::onOrderSaved)
+                .switchIfEmpty(Mono.defer(() -> createOrder(userId, createOrderDTO, orderId)));
+    }
+
+    /**
+     * requestedId: ID con que se reintenta una creación sin respuesta, o null para asignar uno nuevo
+     */
+    private Mono<OrderDTO> createOrder(String userId, CreateOrderDTO createOrderDTO, UUID requestedId) {
         if (createOrderDTO.getItems() == null || createOrderDTO.getItems().isEmpty()) {
             return Mono.error(new IllegalArgumentException("La orden debe tener al menos un producto"));
         }
 
+        // Se reserva el stock antes de crear la orden y se devuelve si la creación falla.
+        // El ID se asigna aquí para poder verificar si la orden existe cuando la escritura
+        // queda sin respuesta: en ese caso el stock solo se devuelve si la orden no se creó,
+        // y el error lleva el ID para que un reintento no cree una segunda orden.
+        return Mono.defer(() -> {
+                    inventoryLedger.reserve(createOrderDTO.getItems());
+                    UUID orderId = intakeJournal != null ? null : requestedId != null ? requestedId : UUID.randomUUID();
+                    Mono<OrderDTO> created = intakeJournal != null
+                            ? intakeJournal.append(userId, createOrderDTO).map(this::provisionalOrder)
+                            : insertOrder(orderId, userId, createOrderDTO).doOnNext(statistics::onOrderSaved);
+                    return created
+                            .switchIfEmpty(Mono.error(new RuntimeException("Error al crear la orden")))
+                            .onErrorResume(e -> {
+                                if (e instanceof SupabaseWriteOutcomeUnknownException && orderId != null) {
+                                    return releaseUnlessCreated(orderId, createOrderDTO.getItems())
+                                            .then(Mono.error(new OrderOutcomeUnknownException(orderId, e)));
+                                }
+                                inventoryLedger.release(createOrderDTO.getItems());
+                                return Mono.error(e);
+                            });
+                });
+    }
+
+    /**
+     * Tras una escritura sin respuesta, devuelve el stock solo si la orden no quedó creada.
+     * Si tampoco se puede consultar, el stock queda reservado: es preferible a vender dos veces.
+     */
+    private Mono<Void> releaseUnlessCreated(UUID orderId, List<CreateOrderItemDTO> items) {
+        return getOrderById(orderId.toString())
+                .hasElement()
+                .doOnNext(exists -> {
+                    if (!exists) {
+                        inventoryLedger.release(items);
+                    }
+                })
+                .onErrorResume(e -> {
+                    System.err.println("No se pudo verificar la orden " + orderId + ": el stock queda reservado");
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * true si createOrder solo registra la orden y la crea en Supabase más tarde (202 Accepted)
+     */
+    public boolean isAsynchronousIntake() {
+        return intakeJournal != null;
+    }
+
+    /**
+     * Crea en Supabase una orden aceptada por el journal, con el ID que ya se le entregó al cliente.
+     * Es idempotente: si la orden ya existe (ej: se creó justo antes de un reinicio) no se duplica,
+     * y si quedó sin items se completan.
+     */
+    public Mono<OrderDTO> persistAcceptedOrder(OrderIntakeJournal.IntakeEntry entry) {
+        CreateOrderDTO order = entry.order();
+        return getOrderById(entry.orderId().toString())
+                .flatMap(existing -> completeItems(existing, order))
+                .switchIfEmpty(Mono.defer(() -> insertOrder(entry.orderId(), entry.userId(), order)))
+                .doOnNext(statistics::onOrderSaved);
+    }
+
+    /**
+     * Crea los items de una orden que quedó sin ellos (su inserción falló o quedó sin respuesta)
+     */
+    private Mono<OrderDTO> completeItems(OrderDTO existing, CreateOrderDTO order) {
+        if (existing.getItems() != null && !existing.getItems().isEmpty()) {
+            return Mono.just(existing);
+        }
+        return getProductPrices(order.getItems())
+                .flatMap(prices -> createOrderItems(existing.getId().toString(), order.getItems(), prices))
+                .map(existing::withItems);
+    }
+
+    /**
+     * Devuelve el stock de una orden aceptada que Supabase rechazó definitivamente
+     */
+    public void releaseRejectedOrder(OrderIntakeJournal.IntakeEntry entry) {
+        inventoryLedger.release(entry.order().getItems());
+    }
+
+    /**
+     * Crea la orden con sus items. orderId null = lo asigna la base de datos.
+     */
+    private Mono<OrderDTO> insertOrder(UUID orderId, String userId, CreateOrderDTO createOrderDTO) {
+        if (creationGateway != null) {
+            return creationGateway.createOrder(orderId, userId, createOrderDTO);
+        }
+
         // Primero obtener los precios de los productos
         return getProductPrices(createOrderDTO.getItems())
                 .flatMap(productPrices -> {
@@ -68,6 +229,9 @@ public class OrderService {
 
                     // Crear la orden en la base de datos
                     Map<String, Object> orderData = new HashMap<>();
+                    if (orderId != null) {
+                        orderData.put("id", orderId);
+                    }
                     orderData.put("user_id", userId);
                     orderData.put("status", "pending");
                     orderData.put("total_amount", totalAmount);
@@ -77,69 +241,135 @@ public class OrderService {
                     return supabaseService.insert("orders", orderData, new ParameterizedTypeReference<List<OrderDTO>>() {})
                             .flatMap(orders -> {
                                 if (orders == null || orders.isEmpty()) {
-                                    return Mono.error(new RuntimeException("Error al crear la orden"));
+                                    return Mono.error(new SupabaseRejectedException("Supabase no creó la orden"));
                                 }
                                 OrderDTO createdOrder = orders.get(0);
 
-                                // Crear los items de la orden
+                                // Crear los items de la orden; el insert ya retorna las filas creadas
                                 return createOrderItems(createdOrder.getId().toString(), createOrderDTO.getItems(), productPrices)
-                                        .then(enrichOrderWithItems(createdOrder));
+                                        .map(items -> {
+                                            createdOrder.setItems(items);
+                                            return createdOrder;
+                                        });
                             });
                 });
     }
 
     /**
-     * Actualizar el estado de una orden (solo admin)
+     * Actualizar el estado de una orden (solo admin), con sus items en la respuesta
      */
     public Mono<OrderDTO> updateOrderStatus(String orderId, String newStatus) {
-        if (!VALID_STATUSES.contains(newStatus)) {
-            return Mono.error(new IllegalArgumentException("Estado inválido: " + newStatus + 
-                    ". Estados válidos: " + VALID_STATUSES));
+        return updateOrderStatus(orderId, newStatus, true);
+    }
+
+    /**
+     * Actualizar el estado de una orden (solo admin) respetando las transiciones de OrderStatus.
+     * Lanza IllegalStateException si la orden no está en un estado desde el que se pueda pasar al nuevo.
+     * Con includeItems=false la respuesta no trae items (al cancelar se leen igual, para devolver el stock).
+     */
+    public Mono<OrderDTO> updateOrderStatus(String orderId, String newStatus, boolean includeItems) {
+        OrderStatus target = OrderStatus.fromValue(newStatus);
+        if (target == null) {
+            return Mono.error(new IllegalArgumentException("Estado inválido: " + newStatus +
+                    ". Estados válidos: " + OrderStatus.allValues()));
+        }
+        return transition(orderId, target, target.allowedPredecessors(), null, includeItems);
+    }
+
+    /**
+     * Cancelar una orden. El dueño puede cancelar sus órdenes en estado pending o paid;
+     * un admin, cualquier orden que aún no se haya enviado.
+     */
+    public Mono<OrderDTO> cancelOrder(String orderId, String userId, boolean isAdmin) {
+        if (isAdmin) {
+            return transition(orderId, OrderStatus.CANCELLED, OrderStatus.CANCELLED.allowedPredecessors(), null, true);
+        }
+        return transition(orderId, OrderStatus.CANCELLED, OrderStatus.cancellableByOwner(), userId, true);
+    }
+
+    /**
+     * Eliminar una orden (solo admin)
+     */
+    public Mono<Void> deleteOrder(String orderId) {
+        // Primero eliminar los items de la orden
+        return supabaseService.deleteWhere(PostgrestQuery.from("order_items").eq("order_id", orderId))
+                .then(supabaseService.delete("orders", orderId))
+                .doOnSuccess(done -> statistics.onOrderDeleted(orderId));
+    }
+
+    // ============ Métodos auxiliares ============
+
+    /**
+     * Cambia el estado con un solo PATCH condicional: el filtro status=in.(from) (y user_id=eq.ownerId
+     * si se indica) valida la transición y la aplica en la misma petición, sin carreras entre leer
+     * y escribir. Solo si no se actualizó ninguna fila se lee la orden para explicar por qué.
+     * Al cancelar se devuelve el stock de los items; como la transición se aplica una sola vez,
+     * el stock también se devuelve una sola vez.
+     */
+    private Mono<OrderDTO> transition(String orderId, OrderStatus target, Set<OrderStatus> from,
+                                      String ownerId, boolean includeItems) {
+        if (from.isEmpty()) {
+            return Mono.error(new IllegalStateException("No se puede cambiar una orden al estado '" + target.value() + "'"));
         }
 
-        Map<String, Object> updateData = new HashMap<>();
-        updateData.put("status", newStatus);
+        boolean withItems = includeItems || target == OrderStatus.CANCELLED;
+        PostgrestQuery query = PostgrestQuery.from("orders")
+                .select(withItems ? COLUMNS_WITH_ITEMS : OrderDTO.COLUMNS)
+                .eq("id", orderId)
+                .in("status", from.stream().map(OrderStatus::value).toList());
+        if (ownerId != null) {
+            query.eq("user_id", ownerId);
+        }
 
-        return supabaseService.update("orders", orderId, updateData, new ParameterizedTypeReference<List<OrderDTO>>() {})
+        return supabaseService.updateWhere(query, Map.of("status", target.value()),
+                        new ParameterizedTypeReference<List<OrderDTO>>() {})
                 .flatMap(orders -> {
                     if (orders == null || orders.isEmpty()) {
-                        return Mono.empty();
+                        return rejectedTransition(orderId, target, ownerId);
                     }
-                    return enrichOrderWithItems(orders.get(0));
+                    OrderDTO updated = orders.get(0);
+                    if (target == OrderStatus.CANCELLED) {
+                        inventoryLedger.releaseOrderItems(updated.getItems());
+                    }
+                    statistics.onOrderSaved(updated);
+                    // El estado anterior solo se conoce si había un único estado de origen posible
+                    statusEvents.publish(updated, from.size() == 1 ? from.iterator().next().value() : null);
+                    return Mono.just(updated);
                 });
     }
 
     /**
-     * Cancelar una orden (usuario puede cancelar sus propias órdenes pendientes)
+     * El PATCH condicional no actualizó nada: vacío si la orden no existe, SecurityException si no es
+     * del usuario o IllegalStateException si su estado actual no permite la transición
      */
-    public Mono<OrderDTO> cancelOrder(String orderId, String userId, boolean isAdmin) {
-        return getOrderById(orderId)
-                .flatMap(order -> {
-                    // Verificar que el usuario sea el dueño o sea admin
-                    if (!isAdmin && !order.getUserId().toString().equals(userId)) {
-                        return Mono.error(new SecurityException("No tienes permiso para cancelar esta orden"));
+    private Mono<OrderDTO> rejectedTransition(String orderId, OrderStatus target, String ownerId) {
+        PostgrestQuery query = PostgrestQuery.from("orders").select("id", "user_id", "status").eq("id", orderId);
+        return supabaseService.select(query, new ParameterizedTypeReference<List<OrderDTO>>() {})
+                .flatMap(orders -> {
+                    if (orders == null || orders.isEmpty()) {
+                        return Mono.empty();
                     }
-
-                    // Solo se pueden cancelar órdenes pendientes o pagadas
-                    if (!isAdmin && !order.getStatus().equals("pending") && !order.getStatus().equals("paid")) {
-                        return Mono.error(new IllegalStateException(
-                                "Solo se pueden cancelar órdenes en estado 'pending' o 'paid'"));
+                    OrderDTO current = orders.get(0);
+                    if (ownerId != null && !current.getUserId().toString().equals(ownerId)) {
+                        return Mono.error(new SecurityException("No tienes permiso para cancelar esta orden"));
                     }
-
-                    return updateOrderStatus(orderId, "cancelled");
+                    return Mono.error(new IllegalStateException("No se puede pasar una orden de '"
+                            + current.getStatus() + "' a '" + target.value() + "'"));
                 });
     }
 
-    /**
-     * Eliminar una orden (solo admin)
-     */
-    public Mono<Void> deleteOrder(String orderId) {
-        // Primero eliminar los items de la orden
-        return supabaseService.deleteWithFilter("order_items", "order_id=eq." + orderId)
-                .then(supabaseService.delete("orders", orderId));
+    private OrderDTO provisionalOrder(OrderIntakeJournal.IntakeEntry entry) {
+        return new OrderDTO(entry.orderId(), UUID.fromString(entry.userId()), "pending", null,
+                entry.order().getShippingAddress(), entry.order().getNotes(), entry.acceptedAt(), entry.acceptedAt());
     }
 
-    // ============ Métodos auxiliares ============
+    private PostgrestQuery ordersQuery() {
+        return PostgrestQuery.from("orders").select(OrderDTO.COLUMNS);
+    }
+
+    private PostgrestQuery itemsQuery() {
+        return PostgrestQuery.from("order_items").select(OrderItemDTO.COLUMNS);
+    }
 
     /**
      * Obtener los precios de los productos
@@ -149,9 +379,9 @@ public class OrderService {
                 .map(item -> item.getProductId().toString())
                 .toList();
 
-        String filter = "id=in.(" + String.join(",", productIds) + ")";
+        PostgrestQuery query = PostgrestQuery.from("products").select("id,price").in("id", productIds);
         
-        return supabaseService.selectWithFilter("products", filter, new ParameterizedTypeReference<List<ProductDTO>>() {})
+        return supabaseService.select(query, new ParameterizedTypeReference<List<ProductDTO>>() {})
                 .map(products -> {
                     Map<String, BigDecimal> prices = new HashMap<>();
                     for (ProductDTO product : products) {
@@ -176,10 +406,12 @@ public class OrderService {
     }
 
     /**
-     * Crear los items de una orden
+     * Crear los items de una orden en un solo INSERT masivo.
+     * insertMany retorna una lista vacía ante un 4xx: si vuelven menos filas que items con precio
+     * se falla, para que la orden no quede (ni se marque en el journal como creada) sin sus items.
      */
-    private Mono<Void> createOrderItems(String orderId, List<CreateOrderItemDTO> items, Map<String, BigDecimal> productPrices) {
-        List<Mono<Void>> insertions = new ArrayList<>();
+    private Mono<List<OrderItemDTO>> createOrderItems(String orderId, List<CreateOrderItemDTO> items, Map<String, BigDecimal> productPrices) {
+        List<Map<String, Object>> rows = new ArrayList<>();
 
         for (CreateOrderItemDTO item : items) {
             BigDecimal unitPrice = productPrices.get(item.getProductId().toString());
@@ -192,47 +424,78 @@ public class OrderService {
             itemData.put("product_id", item.getProductId().toString());
             itemData.put("quantity", item.getQuantity());
             itemData.put("unit_price", unitPrice);
-
-            Mono<Void> insertion = supabaseService.insert("order_items", itemData, 
-                    new ParameterizedTypeReference<List<OrderItemDTO>>() {})
-                    .then();
-            insertions.add(insertion);
+            rows.add(itemData);
         }
 
-        return Mono.when(insertions);
+        return supabaseService.insertMany("order_items", rows,
+                        new ParameterizedTypeReference<List<OrderItemDTO>>() {})
+                .flatMap(created -> {
+                    if (created.size() < rows.size()) {
+                        return Mono.error(new SupabaseRejectedException("Items de la orden " + orderId
+                                + " no creados (" + created.size() + " de " + rows.size() + ")"));
+                    }
+                    return Mono.just(created);
+                });
+    }
+
+    /**
+     * Decodifica las órdenes de la consulta una a una y les agrega sus items por lotes,
+     * manteniendo en memoria solo un lote a la vez
+     */
+    private Flux<OrderDTO> streamWithItems(PostgrestQuery query) {
+        return supabaseService.stream(query, OrderDTO.class, OrderDTO::getId)
+                .buffer(ITEMS_BATCH_SIZE)
+                .concatMap(this::enrichOrdersWithItems)
+                .concatMapIterable(orders -> orders);
     }
 
     /**
-     * Enriquecer una orden con sus items
+     * Enriquecer una orden con sus items.
+     * Los items se leen por páginas (stream) para que max-rows de PostgREST no deje la orden incompleta.
      */
     private Mono<OrderDTO> enrichOrderWithItems(OrderDTO order) {
-        String filter = "order_id=eq." + order.getId().toString();
-        return supabaseService.selectWithFilter("order_items", filter, 
-                new ParameterizedTypeReference<List<OrderItemDTO>>() {})
-                .map(items -> {
-                    order.setItems(items);
-                    return order;
-                });
+        PostgrestQuery query = itemsQuery().eq("order_id", order.getId());
+        return supabaseService.stream(query, OrderItemDTO.class, OrderItemDTO::getId)
+                .collectList()
+                .map(order::withItems);
     }
 
     /**
-     * Enriquecer múltiples órdenes con sus items
+     * Enriquecer múltiples órdenes con sus items.
+     * Los items se piden en lotes con order_id=in.(...) y se agrupan en memoria,
+     * de modo que el costo es una petición por lote y no una por orden. Cada lote se lee por
+     * páginas: 100 órdenes con 10 o más items ya superan max-rows en una sola respuesta.
      */
     private Mono<List<OrderDTO>> enrichOrdersWithItems(List<OrderDTO> orders) {
         if (orders == null || orders.isEmpty()) {
             return Mono.just(Collections.emptyList());
         }
 
-        List<Mono<OrderDTO>> enrichedOrders = orders.stream()
-                .map(this::enrichOrderWithItems)
-                .toList();
+        List<List<OrderDTO>> batches = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i += ITEMS_BATCH_SIZE) {
+            batches.add(orders.subList(i, Math.min(i + ITEMS_BATCH_SIZE, orders.size())));
+        }
 
-        return Mono.zip(enrichedOrders, results -> {
-            List<OrderDTO> list = new ArrayList<>();
-            for (Object result : results) {
-                list.add((OrderDTO) result);
-            }
-            return list;
-        });
+        return Flux.fromIterable(batches)
+                .flatMap(batch -> {
+                    List<UUID> orderIds = batch.stream().map(OrderDTO::getId).toList();
+                    return supabaseService.stream(itemsQuery().in("order_id", orderIds),
+                                    OrderItemDTO.class, OrderItemDTO::getId)
+                            .collectList();
+                }, ITEMS_BATCH_CONCURRENCY)
+                .collectList()
+                .map(itemBatches -> {
+                    Map<UUID, List<OrderItemDTO>> itemsByOrder = new HashMap<>();
+                    for (List<OrderItemDTO> items : itemBatches) {
+                        for (OrderItemDTO item : items) {
+                            itemsByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item);
+                        }
+                    }
+                    List<OrderDTO> enriched = new ArrayList<>(orders.size());
+                    for (OrderDTO order : orders) {
+                        enriched.add(order.withItems(itemsByOrder.getOrDefault(order.getId(), new ArrayList<>())));
+                    }
+                    return enriched;
+                });
     }
 }
@@ -0,0 +1,262 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.OrderDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Estadísticas de órdenes para el dashboard de admin (GET /api/orders/stats), mantenidas en memoria.
+ *
+ * Se guarda un dato mínimo por orden (estado, monto y día) y contadores agregados: órdenes por
+ * estado e ingresos y órdenes por día. Cada creación, cambio de estado o eliminación hecha a
+ * través de OrderService resta el dato anterior de la orden y suma el nuevo, así que consultar
+ * las estadísticas no depende de la cantidad de órdenes. Al iniciar, y luego cada
+ * orders.stats.rebuild-minutes, se reconstruye todo desde Supabase para corregir cambios hechos
+ * fuera de la API. Las órdenes canceladas no suman ingresos.
+ */
+@Service
+public class OrderStatistics {
+
+    private static final String CANCELLED = "cancelled";
+    private static final int MAX_DAYS = 366;
+
+    private record OrderFact(String status, BigDecimal totalAmount, LocalDate day) {
+    }
+
+    private static final class DayTotals {
+        long orders;
+        BigDecimal revenue = BigDecimal.ZERO;
+    }
+
+    private final SupabaseService supabaseService;
+    private final ZoneId zone;
+    private final Duration rebuildInterval;
+
+    // Protegidos por el lock de la instancia
+    private Map<UUID, OrderFact> facts = new HashMap<>();
+    private final Map<String, Long> ordersByStatus = new TreeMap<>();
+    private final TreeMap<LocalDate, DayTotals> days = new TreeMap<>();
+    private BigDecimal revenue = BigDecimal.ZERO;
+    private long revenueOrders;
+    // Órdenes modificadas mientras corre una reconstrucción: conservan el valor en memoria
+    private Set<UUID> touchedDuringRebuild;
+
+    private volatile boolean ready;
+    private volatile Instant lastRebuild;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private Disposable rebuildTask;
+
+    public OrderStatistics(
+            SupabaseService supabaseService,
+            @Value("${orders.stats.zone:America/Santiago}") String zone,
+            @Value("${orders.stats.rebuild-minutes:60}") long rebuildMinutes) {
+        this.supabaseService = supabaseService;
+        this.zone = ZoneId.of(zone);
+        this.rebuildInterval = Duration.ofMinutes(rebuildMinutes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuildTask = Flux.interval(Duration.ZERO, rebuildInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> rebuild().onErrorResume(e -> {
+                    System.err.println("Error al reconstruir las estadísticas de órdenes: " + e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuildTask != null) {
+            rebuildTask.dispose();
+        }
+    }
+
+    /**
+     * Registra una orden creada o actualizada. Los campos ausentes (ej: un PATCH que solo
+     * retorna el estado) conservan el valor conocido.
+     */
+    public synchronized void onOrderSaved(OrderDTO order) {
+        if (order == null || order.getId() == null) {
+            return;
+        }
+        OrderFact previous = facts.get(order.getId());
+        OrderFact fact = new OrderFact(
+                order.getStatus() != null ? order.getStatus() : (previous != null ? previous.status() : null),
+                order.getTotalAmount() != null ? order.getTotalAmount() : (previous != null ? previous.totalAmount() : BigDecimal.ZERO),
+                order.getCreatedAt() != null ? order.getCreatedAt().atZone(zone).toLocalDate()
+                        : (previous != null ? previous.day() : LocalDate.now(zone)));
+        if (previous != null) {
+            subtract(previous);
+        }
+        facts.put(order.getId(), fact);
+        add(fact);
+        touch(order.getId());
+    }
+
+    public synchronized void onOrderDeleted(String orderId) {
+        try {
+            UUID id = UUID.fromString(orderId);
+            OrderFact previous = facts.remove(id);
+            if (previous != null) {
+                subtract(previous);
+            }
+            touch(id);
+        } catch (IllegalArgumentException e) {
+            // ID inválido: no hay nada que eliminar
+        }
+    }
+
+    /**
+     * Estadísticas actuales: órdenes por estado, ingresos, ticket promedio y los últimos días
+     */
+    public synchronized Map<String, Object> snapshot(int lastDays) {
+        int dayCount = Math.max(1, Math.min(lastDays, MAX_DAYS));
+        LocalDate from = LocalDate.now(zone).minusDays(dayCount - 1L);
+
+        Map<String, Object> perDay = new LinkedHashMap<>();
+        days.tailMap(from, true).forEach((day, totals) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("orders", totals.orders);
+            values.put("revenue", totals.revenue);
+            perDay.put(day.toString(), values);
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("lastRebuild", lastRebuild);
+        stats.put("totalOrders", facts.size());
+        stats.put("ordersByStatus", new LinkedHashMap<>(ordersByStatus));
+        stats.put("revenue", revenue);
+        stats.put("averageBasket", revenueOrders > 0
+                ? revenue.divide(BigDecimal.valueOf(revenueOrders), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO);
+        stats.put("days", perDay);
+        return stats;
+    }
+
+    /**
+     * Reconstruye las estadísticas desde Supabase leyendo solo id, estado, monto y fecha de cada orden.
+     * Mientras tanto se siguen sirviendo y actualizando las actuales. Las órdenes se leen por páginas
+     * y solo se reemplaza el estado si se leyeron todas las que informa un count=exact previo.
+     */
+    public Mono<Void> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        synchronized (this) {
+            touchedDuringRebuild = new HashSet<>();
+        }
+        Map<UUID, OrderFact> loaded = new HashMap<>();
+        PostgrestQuery query = PostgrestQuery.from("orders")
+                .select("id", "status", "total_amount", "created_at");
+
+        return supabaseService.count(PostgrestQuery.from("orders"))
+                .switchIfEmpty(Mono.error(new IllegalStateException("Supabase no informó el total de órdenes")))
+                .flatMap(expected -> supabaseService.stream(query, OrderDTO.class, OrderDTO::getId)
+                        .doOnNext(order -> {
+                            if (order.getId() != null) {
+                                loaded.put(order.getId(), new OrderFact(order.getStatus(),
+                                        order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO,
+                                        order.getCreatedAt() != null ? order.getCreatedAt().atZone(zone).toLocalDate()
+                                                : LocalDate.now(zone)));
+                            }
+                        })
+                        .then(Mono.fromRunnable(() -> replaceIfComplete(loaded, expected))))
+                .doFinally(signal -> {
+                    synchronized (this) {
+                        touchedDuringRebuild = null;
+                    }
+                    rebuilding.set(false);
+                })
+                .then();
+    }
+
+    // ============ Métodos auxiliares ============
+
+    private synchronized void replaceIfComplete(Map<UUID, OrderFact> loaded, long expected) {
+        // Las órdenes tocadas durante la lectura (incluidas las eliminadas) explican diferencias con el total
+        if (loaded.size() + touchedDuringRebuild.size() < expected) {
+            System.err.println("Estadísticas de órdenes incompletas (" + loaded.size() + " de " + expected
+                    + "): se conservan las actuales");
+            return;
+        }
+        replaceWith(loaded);
+    }
+
+    private synchronized void replaceWith(Map<UUID, OrderFact> loaded) {
+        for (UUID id : touchedDuringRebuild) {
+            OrderFact live = facts.get(id);
+            if (live != null) {
+                loaded.put(id, live);
+            } else {
+                loaded.remove(id);
+            }
+        }
+        facts = loaded;
+        ordersByStatus.clear();
+        days.clear();
+        revenue = BigDecimal.ZERO;
+        revenueOrders = 0;
+        facts.values().forEach(this::add);
+        ready = true;
+        lastRebuild = Instant.now();
+    }
+
+    private void touch(UUID id) {
+        if (touchedDuringRebuild != null) {
+            touchedDuringRebuild.add(id);
+        }
+    }
+
+    private void add(OrderFact fact) {
+        ordersByStatus.merge(String.valueOf(fact.status()), 1L, Long::sum);
+        DayTotals totals = days.computeIfAbsent(fact.day(), day -> new DayTotals());
+        totals.orders++;
+        if (!CANCELLED.equals(fact.status())) {
+            totals.revenue = totals.revenue.add(fact.totalAmount());
+            revenue = revenue.add(fact.totalAmount());
+            revenueOrders++;
+        }
+    }
+
+    private void subtract(OrderFact fact) {
+        ordersByStatus.computeIfPresent(String.valueOf(fact.status()), (status, count) -> count > 1 ? count - 1 : null);
+        DayTotals totals = days.get(fact.day());
+        if (totals != null) {
+            totals.orders--;
+            if (!CANCELLED.equals(fact.status())) {
+                totals.revenue = totals.revenue.subtract(fact.totalAmount());
+            }
+            if (totals.orders <= 0) {
+                days.remove(fact.day());
+            }
+        }
+        if (!CANCELLED.equals(fact.status())) {
+            revenue = revenue.subtract(fact.totalAmount());
+            revenueOrders--;
+        }
+    }
+}
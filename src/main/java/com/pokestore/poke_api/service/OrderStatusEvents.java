@@ -0,0 +1,84 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.OrderDTO;
+import com.pokestore.poke_api.dto.OrderStatusEventDTO;
+import com.pokestore.poke_api.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Difusión en memoria de los cambios de estado de las órdenes hechos a través de OrderService.
+ *
+ * Un solo sink multicast alimenta a todos los suscriptores de GET /api/orders/stream; cada uno
+ * tiene su propio buffer acotado (orders.events.buffer-size) y, si no alcanza a consumir, pierde
+ * los eventos más antiguos en lugar de frenar a los demás. No hay historial: un cliente que se
+ * reconecta debe recargar sus órdenes una vez y luego seguir con el stream.
+ */
+@Component
+public class OrderStatusEvents implements MetricsSource {
+
+    private final Sinks.Many<OrderStatusEventDTO> sink = Sinks.many().multicast().directBestEffort();
+    private final int bufferSize;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public OrderStatusEvents(@Value("${orders.events.buffer-size:256}") int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Publica el nuevo estado de una orden. previousStatus puede ser null si no se conoce.
+     */
+    public void publish(OrderDTO order, String previousStatus) {
+        if (order == null || order.getId() == null) {
+            return;
+        }
+        OrderStatusEventDTO event = new OrderStatusEventDTO(order.getId(), order.getUserId(), previousStatus,
+                order.getStatus(), order.getUpdatedAt() != null ? order.getUpdatedAt() : Instant.now());
+        // El sink no admite emisiones concurrentes
+        synchronized (sink) {
+            sink.tryEmitNext(event);
+        }
+        published.increment();
+    }
+
+    /**
+     * Eventos visibles para un usuario: los de sus propias órdenes, o todos si es admin
+     */
+    public Flux<OrderStatusEventDTO> subscribe(String userId, boolean isAdmin) {
+        return sink.asFlux()
+                .filter(event -> isAdmin || (event.getUserId() != null && event.getUserId().toString().equals(userId)))
+                .onBackpressureBuffer(bufferSize, event -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (sink) {
+            sink.tryEmitComplete();
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderEvents";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("subscribers", sink.currentSubscriberCount());
+        metrics.put("published", published.sum());
+        metrics.put("dropped", dropped.sum());
+        return metrics;
+    }
+}
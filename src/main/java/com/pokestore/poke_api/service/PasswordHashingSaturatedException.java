@@ -0,0 +1,12 @@
+package com.pokestore.poke_api.service;
+
+/**
+ * El executor de hashing de contraseñas está saturado y rechazó la tarea.
+ * El llamador debe responder 503 para que el cliente reintente más tarde.
+ */
+public class PasswordHashingSaturatedException extends RuntimeException {
+
+    public PasswordHashingSaturatedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,203 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hashing y verificación de contraseñas (BCrypt) en un pool de threads dedicado y acotado.
+ * BCrypt consume ~100 ms de CPU por operación; ejecutarlo aquí evita bloquear los event loops
+ * de Netty que atienden el resto de respuestas de Supabase. Cuando el pool y su cola están
+ * llenos la tarea se rechaza de inmediato con PasswordHashingSaturatedException.
+ *
+ * El costo de BCrypt se calibra al iniciar: se elige el mayor strength (entre min y max) cuyo
+ * hash tarda a lo más auth.hashing.target-ms en este hardware. auth.hashing.strength fija un
+ * valor y omite la calibración.
+ */
+@Service
+public class PasswordHashingService implements MetricsSource {
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final int strength;
+    private final long calibratedMillis;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public PasswordHashingService(
+            @Value("${auth.hashing.threads:0}") int threads,
+            @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${auth.hashing.strength:0}") int fixedStrength,
+            @Value("${auth.hashing.target-ms:250}") long targetMillis,
+            @Value("${auth.hashing.min-strength:10}") int minStrength,
+            @Value("${auth.hashing.max-strength:14}") int maxStrength) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity;
+
+        if (fixedStrength > 0) {
+            this.strength = fixedStrength;
+            this.calibratedMillis = measureMillis(fixedStrength);
+        } else {
+            long[] measured = new long[1];
+            this.strength = calibrate(targetMillis, minStrength, maxStrength, measured);
+            this.calibratedMillis = measured[0];
+        }
+        this.passwordEncoder = new BCryptPasswordEncoder(strength);
+        System.out.println("BCrypt strength: " + strength + " (~" + calibratedMillis + " ms por hash)");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Genera el hash BCrypt de una contraseña
+     */
+    public Mono<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Verifica una contraseña contra su hash BCrypt
+     */
+    public Mono<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * true si el hash fue generado con un strength menor al actual y conviene regenerarlo
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "passwordHashing";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long done = completed.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("strength", strength);
+        metrics.put("calibratedHashMs", calibratedMillis);
+        metrics.put("poolSize", executor.getCorePoolSize());
+        metrics.put("activeThreads", executor.getActiveCount());
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("completed", done);
+        metrics.put("rejected", rejected.sum());
+        metrics.put("avgWaitMs", done == 0 ? 0.0 : totalWaitNanos.sum() / 1_000_000.0 / done);
+        metrics.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+        metrics.put("avgRunMs", done == 0 ? 0.0 : totalRunNanos.sum() / 1_000_000.0 / done);
+        return metrics;
+    }
+
+    // ============ Métodos auxiliares ============
+
+    /**
+     * Sube el strength mientras el hash siga dentro del objetivo; nunca baja de minStrength
+     */
+    private static int calibrate(long targetMillis, int minStrength, int maxStrength, long[] measuredMillis) {
+        int chosen = minStrength;
+        measuredMillis[0] = measureMillis(minStrength);
+        for (int candidate = minStrength + 1; candidate <= maxStrength; candidate++) {
+            // Cada punto duplica el costo: si la estimación ya supera el objetivo no se mide
+            if (measuredMillis[0] * 2 > targetMillis) {
+                break;
+            }
+            long millis = measureMillis(candidate);
+            if (millis > targetMillis) {
+                break;
+            }
+            chosen = candidate;
+            measuredMillis[0] = millis;
+        }
+        return chosen;
+    }
+
+    /**
+     * Mediana de tres hashes (después de uno de calentamiento) con el strength indicado
+     */
+    private static long measureMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode("calibration");
+        long[] samples = new long[3];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            samples[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(samples);
+        return samples[1];
+    }
+
+    private <T> Mono<T> submit(Callable<T> task) {
+        return Mono.create(sink -> {
+            long enqueuedAt = System.nanoTime();
+            Future<?> future;
+            try {
+                future = executor.submit(() -> {
+                    long startedAt = System.nanoTime();
+                    long waited = startedAt - enqueuedAt;
+                    totalWaitNanos.add(waited);
+                    maxWaitNanos.accumulate(waited);
+                    try {
+                        T result = task.call();
+                        sink.success(result);
+                    } catch (Exception e) {
+                        sink.error(e);
+                    } finally {
+                        totalRunNanos.add(System.nanoTime() - startedAt);
+                        completed.increment();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                sink.error(new PasswordHashingSaturatedException("Executor de hashing saturado"));
+                return;
+            }
+            // Si el cliente se desconecta antes de empezar, la tarea no llega a ejecutarse
+            sink.onCancel(() -> future.cancel(false));
+        });
+    }
+}
@@ -0,0 +1,189 @@
+package com.pokestore.poke_api.service;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Constructor de consultas PostgREST: filtros, proyección (select=), orden, limit y offset.
+ * Los valores se codifican para URL y, en listas in.(...), se escapan según las reglas de PostgREST,
+ * de modo que los llamadores no concatenan filtros a mano.
+ *
+ * Ejemplo: PostgrestQuery.from("users").select(UserDTO.COLUMNS).eq("email", email).limit(1)
+ */
+public final class PostgrestQuery {
+
+    private static final Pattern COLUMN_PATTERN = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*$");
+    private static final Pattern SELECT_PATTERN = Pattern.compile("^[A-Za-z0-9_*:(),!.\\s]+$");
+    private static final Pattern IN_RESERVED = Pattern.compile("[,()\"\\\\:\\s]");
+
+    private final String table;
+    private final List<String> filters = new ArrayList<>();
+    private final List<String> orders = new ArrayList<>();
+    private String select;
+    private Integer limit;
+    private Long offset;
+
+    private PostgrestQuery(String table) {
+        this.table = requireColumn(table);
+    }
+
+    public static PostgrestQuery from(String table) {
+        return new PostgrestQuery(table);
+    }
+
+    /**
+     * Copia independiente de la consulta, útil para derivar páginas de una consulta base
+     */
+    public PostgrestQuery copy() {
+        PostgrestQuery copy = new PostgrestQuery(table);
+        copy.filters.addAll(filters);
+        copy.orders.addAll(orders);
+        copy.select = select;
+        copy.limit = limit;
+        copy.offset = offset;
+        return copy;
+    }
+
+    /**
+     * Columnas a retornar. Acepta varias columnas o una lista separada por comas.
+     */
+    public PostgrestQuery select(String... columns) {
+        String projection = String.join(",", columns).replaceAll("\\s", "");
+        if (!SELECT_PATTERN.matcher(projection).matches()) {
+            throw new IllegalArgumentException("Proyección inválida: " + projection);
+        }
+        this.select = projection;
+        return this;
+    }
+
+    public PostgrestQuery eq(String column, Object value) {
+        return filter(column, "eq", String.valueOf(value));
+    }
+
+    public PostgrestQuery neq(String column, Object value) {
+        return filter(column, "neq", String.valueOf(value));
+    }
+
+    public PostgrestQuery gt(String column, Object value) {
+        return filter(column, "gt", String.valueOf(value));
+    }
+
+    public PostgrestQuery gte(String column, Object value) {
+        return filter(column, "gte", String.valueOf(value));
+    }
+
+    public PostgrestQuery lt(String column, Object value) {
+        return filter(column, "lt", String.valueOf(value));
+    }
+
+    public PostgrestQuery lte(String column, Object value) {
+        return filter(column, "lte", String.valueOf(value));
+    }
+
+    /**
+     * Búsqueda sin distinguir mayúsculas; usar * como comodín (ej: "*pika*")
+     */
+    public PostgrestQuery ilike(String column, String pattern) {
+        return filter(column, "ilike", pattern);
+    }
+
+    /**
+     * Búsqueda por texto contenido, sin distinguir mayúsculas
+     */
+    public PostgrestQuery ilikeContains(String column, String text) {
+        return ilike(column, "*" + text + "*");
+    }
+
+    public PostgrestQuery in(String column, Collection<?> values) {
+        String list = values.stream()
+                .map(value -> quoteInValue(String.valueOf(value)))
+                .collect(Collectors.joining(","));
+        return filter(column, "in", "(" + list + ")");
+    }
+
+    public PostgrestQuery orderBy(String column, boolean ascending) {
+        orders.add(requireColumn(column) + (ascending ? ".asc" : ".desc"));
+        return this;
+    }
+
+    public PostgrestQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public PostgrestQuery offset(long offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Query string codificado para URL (sin el '?' inicial)
+     */
+    public String toQueryString() {
+        List<String> params = new ArrayList<>();
+        if (select != null) {
+            params.add("select=" + encode(select));
+        }
+        params.addAll(filters);
+        if (!orders.isEmpty()) {
+            params.add("order=" + encode(String.join(",", orders)));
+        }
+        if (limit != null) {
+            params.add("limit=" + limit);
+        }
+        if (offset != null) {
+            params.add("offset=" + offset);
+        }
+        return String.join("&", params);
+    }
+
+    /**
+     * Ruta relativa al servidor de Supabase (ej: /rest/v1/users?select=id&email=eq.a%40b.cl)
+     */
+    public String toPath() {
+        String query = toQueryString();
+        return "/rest/v1/" + table + (query.isEmpty() ? "" : "?" + query);
+    }
+
+    @Override
+    public String toString() {
+        return toPath();
+    }
+
+    // ============ Métodos auxiliares ============
+
+    private PostgrestQuery filter(String column, String operator, String value) {
+        filters.add(requireColumn(column) + "=" + operator + "." + encode(value));
+        return this;
+    }
+
+    private static String requireColumn(String column) {
+        if (column == null || !COLUMN_PATTERN.matcher(column).matches()) {
+            throw new IllegalArgumentException("Nombre de columna inválido: " + column);
+        }
+        return column;
+    }
+
+    /**
+     * Dentro de in.(...) los valores con caracteres reservados van entre comillas dobles
+     */
+    private static String quoteInValue(String value) {
+        if (!IN_RESERVED.matcher(value).find()) {
+            return value;
+        }
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
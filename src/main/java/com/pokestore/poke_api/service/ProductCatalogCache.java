@@ -0,0 +1,133 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.cache.TtlCache;
+import com.pokestore.poke_api.dto.ProductDTO;
+import com.pokestore.poke_api.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché read-through del catálogo de productos delante de SupabaseService.
+ * Las lecturas se sirven desde memoria mientras no expire el TTL; las escrituras
+ * hechas a través de la API actualizan o invalidan las entradas afectadas.
+ */
+@Service
+public class ProductCatalogCache implements MetricsSource {
+
+    private static final String ALL_KEY = "all";
+
+    private final SupabaseService supabaseService;
+    private final TtlCache<String, List<ProductDTO>> lists;
+    private final TtlCache<String, ProductDTO> products;
+
+    // Se incrementa en cada escritura para no guardar lecturas que empezaron antes de ella
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProductCatalogCache(
+            SupabaseService supabaseService,
+            @Value("${catalog.cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${catalog.cache.max-entries:5000}") int maxEntries) {
+        this.supabaseService = supabaseService;
+        this.lists = new TtlCache<>(Duration.ofSeconds(ttlSeconds), 64);
+        this.products = new TtlCache<>(Duration.ofSeconds(ttlSeconds), maxEntries);
+    }
+
+    /**
+     * Obtiene todos los productos del catálogo
+     */
+    public Mono<List<ProductDTO>> getAll() {
+        List<ProductDTO> cached = lists.get(ALL_KEY);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        long readGeneration = generation.get();
+        return supabaseService.select(PostgrestQuery.from("products").select(ProductDTO.COLUMNS),
+                        new ParameterizedTypeReference<List<ProductDTO>>() {})
+                .map(list -> {
+                    List<ProductDTO> snapshot = Collections.unmodifiableList(new ArrayList<>(list));
+                    // No se cachean listas vacías: pueden venir de un error del upstream
+                    if (!snapshot.isEmpty() && generation.get() == readGeneration) {
+                        lists.put(ALL_KEY, snapshot);
+                        for (ProductDTO product : snapshot) {
+                            products.put(product.getId().toString(), product);
+                        }
+                    }
+                    return snapshot;
+                });
+    }
+
+    /**
+     * Obtiene un producto por ID. Retorna vacío si no existe.
+     */
+    public Mono<ProductDTO> getById(String id) {
+        ProductDTO cached = products.get(id);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        long readGeneration = generation.get();
+        PostgrestQuery query = PostgrestQuery.from("products").select(ProductDTO.COLUMNS).eq("id", id);
+        return supabaseService.select(query, new ParameterizedTypeReference<List<ProductDTO>>() {})
+                .flatMap(list -> {
+                    if (list == null || list.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    ProductDTO product = list.get(0);
+                    if (generation.get() == readGeneration) {
+                        products.put(id, product);
+                    }
+                    return Mono.just(product);
+                });
+    }
+
+    /**
+     * Registra un producto creado o actualizado por la API
+     */
+    public void onProductSaved(ProductDTO product) {
+        generation.incrementAndGet();
+        lists.clear();
+        products.put(product.getId().toString(), product);
+    }
+
+    /**
+     * Registra un producto eliminado por la API
+     */
+    public void onProductDeleted(String id) {
+        generation.incrementAndGet();
+        lists.clear();
+        products.remove(id);
+    }
+
+    /**
+     * Descarta todo el contenido de la caché
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        lists.clear();
+        products.clear();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "catalogCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("lists", lists.stats());
+        metrics.put("products", products.stats());
+        return metrics;
+    }
+}
@@ -0,0 +1,189 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.metrics.MetricsSource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lecturas con cobertura (hedged requests) hacia Supabase.
+ * Si la primera petición no respondió dentro del percentil configurado de la latencia reciente
+ * de la tabla, se envía una segunda; gana la que responda primero y la otra se cancela.
+ * Cada tabla tiene un presupuesto de coberturas (fracción de las lecturas) para no
+ * duplicar la carga sobre Supabase cuando todo está lento.
+ *
+ * Configuración: supabase.hedging.enabled, .percentile, .min-delay-ms, .budget-ratio
+ * (por tabla: supabase.hedging.tables.<tabla>.budget-ratio), .min-samples
+ */
+@Component
+public class SupabaseHedging implements MetricsSource {
+
+    private static final int WINDOW_SIZE = 256;
+    private static final int RECOMPUTE_EVERY = 32;
+    private static final long BUDGET_SCALE = 1000;
+    private static final long MAX_BUDGET_TOKENS = 10;
+
+    private final Environment environment;
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayMillis;
+    private final int minSamples;
+
+    private final Map<String, TableState> tables = new ConcurrentHashMap<>();
+
+    public SupabaseHedging(Environment environment) {
+        this.environment = environment;
+        this.enabled = environment.getProperty("supabase.hedging.enabled", Boolean.class, false);
+        this.percentile = environment.getProperty("supabase.hedging.percentile", Double.class, 0.95);
+        this.minDelayMillis = environment.getProperty("supabase.hedging.min-delay-ms", Long.class, 20L);
+        this.minSamples = environment.getProperty("supabase.hedging.min-samples", Integer.class, 50);
+    }
+
+    /**
+     * Ejecuta una lectura idempotente con cobertura. Cada suscripción crea intentos nuevos,
+     * por lo que es compatible con los reintentos de SupabaseResilience.
+     */
+    public <T> Mono<T> hedge(String table, Supplier<Mono<T>> attempt) {
+        if (!enabled) {
+            return Mono.defer(attempt);
+        }
+        TableState state = tables.computeIfAbsent(table, this::newTableState);
+
+        return Mono.defer(() -> {
+            state.onRequest();
+            Mono<T> primary = timed(state, attempt.get());
+
+            Duration delay = state.hedgeDelay();
+            if (delay == null) {
+                return primary;
+            }
+
+            // Si no hay presupuesto o la cobertura falla, se deja decidir a la petición original
+            Mono<T> hedged = Mono.delay(delay)
+                    .flatMap(tick -> {
+                        if (!state.tryAcquireBudget()) {
+                            return Mono.<T>never();
+                        }
+                        state.hedgesSent.increment();
+                        return attempt.get()
+                                .doOnNext(value -> state.hedgesWon.increment())
+                                .onErrorResume(e -> Mono.never());
+                    });
+
+            return Mono.firstWithSignal(primary, hedged);
+        });
+    }
+
+    private <T> Mono<T> timed(TableState state, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(value -> state.record((System.nanoTime() - start) / 1_000_000));
+        });
+    }
+
+    private TableState newTableState(String table) {
+        double budgetRatio = environment.getProperty("supabase.hedging.tables." + table + ".budget-ratio", Double.class,
+                environment.getProperty("supabase.hedging.budget-ratio", Double.class, 0.05));
+        return new TableState(budgetRatio);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "supabaseHedging";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> perTable = new TreeMap<>();
+        tables.forEach((table, state) -> {
+            Duration delay = state.hedgeDelay();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("requests", state.requests.sum());
+            values.put("hedgesSent", state.hedgesSent.sum());
+            values.put("hedgesWon", state.hedgesWon.sum());
+            values.put("hedgeDelayMs", delay != null ? delay.toMillis() : null);
+            values.put("budgetRatio", state.budgetRatio);
+            perTable.put(table, values);
+        });
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("percentile", percentile);
+        metrics.put("tables", perTable);
+        return metrics;
+    }
+
+    /**
+     * Latencias recientes (ventana circular), retardo de cobertura derivado y presupuesto de una tabla
+     */
+    private final class TableState {
+
+        private final double budgetRatio;
+        private final AtomicLongArray latencies = new AtomicLongArray(WINDOW_SIZE);
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong budgetMilliTokens = new AtomicLong();
+        private volatile Duration hedgeDelay;
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder hedgesSent = new LongAdder();
+        private final LongAdder hedgesWon = new LongAdder();
+
+        TableState(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        void record(long latencyMillis) {
+            long n = samples.getAndIncrement();
+            latencies.set((int) (n % WINDOW_SIZE), latencyMillis);
+            if ((n + 1) >= minSamples && (n + 1) % RECOMPUTE_EVERY == 0) {
+                recomputeDelay(Math.min(n + 1, WINDOW_SIZE));
+            }
+        }
+
+        private void recomputeDelay(long count) {
+            long[] window = new long[(int) count];
+            for (int i = 0; i < count; i++) {
+                window[i] = latencies.get(i);
+            }
+            Arrays.sort(window);
+            int index = (int) Math.min(count - 1, Math.ceil(percentile * count) - 1);
+            hedgeDelay = Duration.ofMillis(Math.max(minDelayMillis, window[Math.max(0, index)]));
+        }
+
+        Duration hedgeDelay() {
+            return hedgeDelay;
+        }
+
+        /**
+         * Cada lectura suma budgetRatio tokens (con tope); cada cobertura consume uno
+         */
+        void onRequest() {
+            requests.increment();
+            long increment = (long) (budgetRatio * BUDGET_SCALE);
+            budgetMilliTokens.updateAndGet(tokens -> Math.min(MAX_BUDGET_TOKENS * BUDGET_SCALE, tokens + increment));
+        }
+
+        boolean tryAcquireBudget() {
+            while (true) {
+                long tokens = budgetMilliTokens.get();
+                if (tokens < BUDGET_SCALE) {
+                    return false;
+                }
+                if (budgetMilliTokens.compareAndSet(tokens, tokens - BUDGET_SCALE)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
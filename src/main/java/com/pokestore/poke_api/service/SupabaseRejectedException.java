@@ -0,0 +1,12 @@
+package com.pokestore.poke_api.service;
+
+/**
+ * Supabase rechazó la escritura con un error 4xx (ej: el producto o el usuario ya no existen).
+ * A diferencia de SupabaseUnavailableException, repetirla igual no cambia el resultado.
+ */
+public class SupabaseRejectedException extends RuntimeException {
+
+    public SupabaseRejectedException(String message) {
+        super(message);
+    }
+}
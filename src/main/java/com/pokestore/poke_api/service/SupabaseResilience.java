@@ -0,0 +1,313 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.metrics.MetricsSource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.retry.Retry;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Capa de resiliencia para las llamadas a Supabase, por tabla y tipo de operación:
+ * deadline por intento y deadline total (incluidos reintentos y backoff), reintentos con backoff
+ * exponencial y jitter (solo lecturas) y circuit breaker que falla rápido mientras el upstream no está sano.
+ * Una escritura que falla de forma transitoria después de enviarse (deadline, timeout de Netty,
+ * conexión cortada, 502/504...) termina con SupabaseWriteOutcomeUnknownException: pudo haberse
+ * aplicado en Supabase aunque no llegara la respuesta. Solo los errores que aseguran que la
+ * petición no llegó (conexión rechazada, host desconocido, 429) quedan como SupabaseUnavailableException.
+ * El deadline de las escrituras debe ser menor que supabase.http.response-timeout-ms.
+ *
+ * Configuración (con valores por tabla opcionales en supabase.resilience.tables.<tabla>.<read|write>.*):
+ * supabase.resilience.<read|write>.timeout-ms, .deadline-ms, .retries, .backoff-ms, .max-backoff-ms
+ * supabase.resilience.breaker.failure-threshold, supabase.resilience.breaker.open-ms
+ */
+@Component
+public class SupabaseResilience implements MetricsSource {
+
+    public enum Operation {
+        READ, WRITE;
+
+        String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    private record Policy(Duration timeout, Duration deadline, int retries, Duration backoff, Duration maxBackoff) {
+    }
+
+    private final Environment environment;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder deadlinesExceeded = new LongAdder();
+    private final LongAdder writeOutcomeUnknown = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder upstreamFailures = new LongAdder();
+    private final LongAdder rejectedByBreaker = new LongAdder();
+
+    public SupabaseResilience(Environment environment) {
+        this.environment = environment;
+        this.failureThreshold = environment.getProperty("supabase.resilience.breaker.failure-threshold", Integer.class, 5);
+        this.openMillis = environment.getProperty("supabase.resilience.breaker.open-ms", Long.class, 10_000L);
+    }
+
+    /**
+     * Aplica deadline, reintentos (si la operación es de lectura) y circuit breaker a una llamada.
+     * Los errores transitorios se convierten en SupabaseUnavailableException (o en
+     * SupabaseWriteOutcomeUnknownException si una escritura pudo haberse aplicado); los 4xx pasan sin cambios.
+     */
+    public <T> Mono<T> apply(String table, Operation operation, Mono<T> call) {
+        Policy policy = policy(table, operation);
+        CircuitBreaker breaker = breaker(table, operation);
+
+        Mono<T> attempt = call.timeout(policy.timeout())
+                .doOnError(TimeoutException.class, e -> timeouts.increment());
+        if (operation == Operation.READ && policy.retries() > 0) {
+            attempt = attempt.retryWhen(Retry.backoff(policy.retries(), policy.backoff())
+                    .maxBackoff(policy.maxBackoff())
+                    .jitter(0.5)
+                    .filter(SupabaseResilience::isTransient)
+                    .doBeforeRetry(signal -> retries.increment())
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        }
+
+        // El timeout por intento no acota la suma de intentos y esperas: el deadline total sí
+        Mono<T> guarded = attempt.timeout(policy.deadline())
+                .doOnError(TimeoutException.class, e -> deadlinesExceeded.increment());
+        return Mono.defer(() -> {
+            if (!breaker.tryAcquire()) {
+                rejectedByBreaker.increment();
+                return Mono.error(new SupabaseUnavailableException(
+                        "Supabase no disponible (" + table + "): circuito abierto"));
+            }
+            return guarded
+                    .doOnSuccess(value -> breaker.onSuccess())
+                    .doOnError(e -> breaker.onResult(isTransient(e)))
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            breaker.onCancel();
+                        }
+                    });
+        }).onErrorMap(SupabaseResilience::isTransient, e -> {
+            upstreamFailures.increment();
+            if (operation == Operation.WRITE && mayHaveBeenApplied(e)) {
+                writeOutcomeUnknown.increment();
+                return new SupabaseWriteOutcomeUnknownException(
+                        "Escritura sin respuesta confirmada (" + table + "): pudo haberse aplicado", e);
+            }
+            return new SupabaseUnavailableException("Supabase no disponible (" + table + ")", e);
+        });
+    }
+
+    /**
+     * Variante para streams: el deadline aplica hasta el primer elemento y no se reintenta,
+     * porque los elementos ya emitidos no se pueden deshacer.
+     */
+    public <T> Flux<T> applyStream(String table, Flux<T> call) {
+        Policy policy = policy(table, Operation.READ);
+        CircuitBreaker breaker = breaker(table, Operation.READ);
+
+        return Flux.defer(() -> {
+            if (!breaker.tryAcquire()) {
+                rejectedByBreaker.increment();
+                return Flux.<T>error(new SupabaseUnavailableException(
+                        "Supabase no disponible (" + table + "): circuito abierto"));
+            }
+            return call.timeout(Mono.delay(policy.timeout()), item -> Mono.never())
+                    .doOnError(TimeoutException.class, e -> timeouts.increment())
+                    .doOnComplete(breaker::onSuccess)
+                    .doOnError(e -> breaker.onResult(isTransient(e)))
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            breaker.onCancel();
+                        }
+                    });
+        }).onErrorMap(SupabaseResilience::isTransient, e -> {
+            upstreamFailures.increment();
+            return new SupabaseUnavailableException("Supabase no disponible (" + table + ")", e);
+        });
+    }
+
+    /**
+     * Timeouts, errores de conexión, 5xx y 429 se consideran transitorios
+     */
+    static boolean isTransient(Throwable e) {
+        if (e instanceof TimeoutException || e instanceof WebClientRequestException) {
+            return true;
+        }
+        if (e instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return false;
+    }
+
+    /**
+     * Para un error transitorio de una escritura: false solo si es seguro que Supabase no la
+     * procesó (no se pudo conectar, o respondió 429 sin procesarla)
+     */
+    static boolean mayHaveBeenApplied(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().value() != 429;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ============ Configuración ============
+
+    private Policy policy(String table, Operation operation) {
+        return policies.computeIfAbsent(table + "." + operation.key(), key -> {
+            boolean read = operation == Operation.READ;
+            long timeoutMillis = property(table, operation, "timeout-ms", read ? 3000L : 4500L);
+            long deadlineMillis = property(table, operation, "deadline-ms", read ? 5000L : timeoutMillis);
+            long responseTimeoutMillis = environment.getProperty("supabase.http.response-timeout-ms", Long.class, 5000L);
+            if (!read && Math.min(timeoutMillis, deadlineMillis) >= responseTimeoutMillis) {
+                System.err.println("supabase.resilience (" + table + ".write): el deadline (" + deadlineMillis
+                        + " ms) debe ser menor que supabase.http.response-timeout-ms (" + responseTimeoutMillis + " ms)");
+            }
+            return new Policy(
+                    Duration.ofMillis(timeoutMillis),
+                    Duration.ofMillis(deadlineMillis),
+                    (int) property(table, operation, "retries", read ? 2L : 0L),
+                    Duration.ofMillis(property(table, operation, "backoff-ms", 100L)),
+                    Duration.ofMillis(property(table, operation, "max-backoff-ms", 1000L)));
+        });
+    }
+
+    private long property(String table, Operation operation, String name, long defaultValue) {
+        Long tableValue = environment.getProperty(
+                "supabase.resilience.tables." + table + "." + operation.key() + "." + name, Long.class);
+        if (tableValue != null) {
+            return tableValue;
+        }
+        return environment.getProperty("supabase.resilience." + operation.key() + "." + name, Long.class, defaultValue);
+    }
+
+    private CircuitBreaker breaker(String table, Operation operation) {
+        return breakers.computeIfAbsent(table + "." + operation.key(),
+                key -> new CircuitBreaker(failureThreshold, openMillis));
+    }
+
+    // ============ Métricas ============
+
+    @Override
+    public String getMetricsName() {
+        return "supabaseResilience";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> circuits = new TreeMap<>();
+        breakers.forEach((name, breaker) -> circuits.put(name, breaker.snapshot()));
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("timeouts", timeouts.sum());
+        metrics.put("deadlinesExceeded", deadlinesExceeded.sum());
+        metrics.put("writeOutcomeUnknown", writeOutcomeUnknown.sum());
+        metrics.put("retries", retries.sum());
+        metrics.put("upstreamFailures", upstreamFailures.sum());
+        metrics.put("rejectedByBreaker", rejectedByBreaker.sum());
+        metrics.put("circuits", circuits);
+        return metrics;
+    }
+
+    /**
+     * Circuit breaker por fallas consecutivas. CLOSED deja pasar todo; tras N fallas pasa a OPEN
+     * y rechaza durante openMillis; luego HALF_OPEN deja pasar una sola prueba que decide si
+     * vuelve a CLOSED o a OPEN.
+     */
+    static final class CircuitBreaker {
+
+        enum State { CLOSED, OPEN, HALF_OPEN }
+
+        private final int failureThreshold;
+        private final long openMillis;
+
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean probeInFlight;
+        private long timesOpened;
+
+        CircuitBreaker(int failureThreshold, long openMillis) {
+            this.failureThreshold = failureThreshold;
+            this.openMillis = openMillis;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.OPEN) {
+                return false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+            }
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            probeInFlight = false;
+        }
+
+        /**
+         * Registra un error; solo los transitorios cuentan como falla del upstream
+         */
+        synchronized void onResult(boolean upstreamFailure) {
+            if (!upstreamFailure) {
+                onSuccess();
+                return;
+            }
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                if (state != State.OPEN) {
+                    timesOpened++;
+                }
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+                probeInFlight = false;
+            }
+        }
+
+        synchronized void onCancel() {
+            probeInFlight = false;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            return Map.of(
+                    "state", state.name(),
+                    "consecutiveFailures", consecutiveFailures,
+                    "timesOpened", timesOpened
+            );
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.CreateOrderDTO;
+import com.pokestore.poke_api.dto.OrderDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Crea la orden llamando a la función create_order_with_items de Postgres (ver
+ * resources/db/create_order_with_items.sql): un solo round trip y una sola transacción,
+ * por lo que nunca queda una orden sin sus items.
+ */
+@Component
+@ConditionalOnProperty(name = "orders.create.mode", havingValue = "rpc")
+public class SupabaseRpcOrderCreationGateway implements OrderCreationGateway {
+
+    private final SupabaseService supabaseService;
+    private final String function;
+
+    public SupabaseRpcOrderCreationGateway(
+            SupabaseService supabaseService,
+            @Value("${orders.create.rpc-function:create_order_with_items}") String function) {
+        this.supabaseService = supabaseService;
+        this.function = function;
+    }
+
+    @Override
+    public Mono<OrderDTO> createOrder(UUID orderId, String userId, CreateOrderDTO order) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("p_order_id", orderId);
+        args.put("p_user_id", userId);
+        args.put("p_shipping_address", order.getShippingAddress());
+        args.put("p_notes", order.getNotes());
+        args.put("p_items", order.getItems());
+        return supabaseService.rpc(function, args, OrderDTO.class);
+    }
+}
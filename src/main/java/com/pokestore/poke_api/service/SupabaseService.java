@@ -1,62 +1,223 @@
 package com.pokestore.poke_api.service;
 
+import com.pokestore.poke_api.metrics.MetricsSource;
+import com.pokestore.poke_api.service.SupabaseResilience.Operation;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.net.URI;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
+/**
+ * Cliente de la API REST de Supabase (PostgREST).
+ * Todas las llamadas pasan por SupabaseResilience: los errores 4xx se registran y se tratan
+ * como resultado vacío, mientras que timeouts, 5xx y circuito abierto se propagan como
+ * SupabaseUnavailableException. Las lecturas idempotentes pueden ir con cobertura (SupabaseHedging).
+ */
 @Service
-public class SupabaseService {
+public class SupabaseService implements MetricsSource {
+
+    private static final Pattern RPC_NAME_PATTERN = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*$");
 
     private final WebClient webClient;
+    private final String supabaseUrl;
+    private final SupabaseResilience resilience;
+    private final SupabaseHedging hedging;
+    private final int streamPageSize;
+
+    // Lecturas en curso, para que las peticiones idénticas concurrentes compartan una sola llamada
+    private final Map<String, Mono<?>> inFlightReads = new ConcurrentHashMap<>();
+    private final LongAdder upstreamReads = new LongAdder();
+    private final LongAdder coalescedReads = new LongAdder();
 
-    public SupabaseService(WebClient supabaseWebClient) {
+    public SupabaseService(WebClient supabaseWebClient, @Value("${supabase.url}") String supabaseUrl,
+                           SupabaseResilience resilience, SupabaseHedging hedging,
+                           @Value("${supabase.stream.page-size:1000}") int streamPageSize) {
         this.webClient = supabaseWebClient;
+        this.resilience = resilience;
+        this.hedging = hedging;
+        this.streamPageSize = streamPageSize;
+        this.supabaseUrl = supabaseUrl.endsWith("/") ? supabaseUrl.substring(0, supabaseUrl.length() - 1) : supabaseUrl;
+    }
+
+    /**
+     * Resultado de una consulta por rango: filas y header Content-Range (ej: "0-49/*")
+     */
+    public record RangeResult<T>(List<T> items, String contentRange) {
     }
 
     /**
      * SELECT: Obtiene todos los registros de una tabla
      */
     public <T> Mono<List<T>> selectAll(String table, ParameterizedTypeReference<List<T>> responseType) {
-        return webClient.get()
-                .uri("/rest/v1/" + table)
-                .retrieve()
-                .bodyToMono(responseType)
-                .onErrorResume(WebClientResponseException.class, e -> {
-                    System.err.println("Error en selectAll: " + e.getResponseBodyAsString());
-                    return Mono.just(Collections.emptyList());
-                });
+        return select(PostgrestQuery.from(table), responseType);
     }
 
     /**
      * SELECT: Obtiene un registro por ID
      */
     public <T> Mono<List<T>> selectById(String table, String id, ParameterizedTypeReference<List<T>> responseType) {
-        return webClient.get()
-                .uri("/rest/v1/" + table + "?id=eq." + id)
-                .retrieve()
-                .bodyToMono(responseType)
+        return select(PostgrestQuery.from(table).eq("id", id), responseType);
+    }
+
+    /**
+     * SELECT: Consulta construida con PostgrestQuery (filtros, proyección, orden y límites)
+     */
+    public <T> Mono<List<T>> select(PostgrestQuery query, ParameterizedTypeReference<List<T>> responseType) {
+        URI uri = toUri(query);
+        return coalesce(uri.toString(), responseType, () -> resilience.apply(query.getTable(), Operation.READ,
+                        hedging.hedge(query.getTable(), () -> webClient.get()
+                                .uri(uri)
+                                .retrieve()
+                                .bodyToMono(responseType)))
                 .onErrorResume(WebClientResponseException.class, e -> {
-                    System.err.println("Error en selectById: " + e.getResponseBodyAsString());
+                    System.err.println("Error en select (" + query.getTable() + "): " + e.getResponseBodyAsString());
                     return Mono.just(Collections.emptyList());
-                });
+                }));
     }
 
     /**
-     * SELECT: Búsqueda con filtros personalizados
+     * SELECT: Búsqueda con un filtro PostgREST escrito a mano.
+     * Preferir select(PostgrestQuery), que codifica los valores correctamente.
      */
     public <T> Mono<List<T>> selectWithFilter(String table, String filter, ParameterizedTypeReference<List<T>> responseType) {
-        return webClient.get()
-                .uri("/rest/v1/" + table + "?" + filter)
-                .retrieve()
-                .bodyToMono(responseType)
+        String uri = "/rest/v1/" + table + "?" + filter;
+        return coalesce(uri, responseType, () -> resilience.apply(table, Operation.READ,
+                        hedging.hedge(table, () -> webClient.get()
+                                .uri(uri)
+                                .retrieve()
+                                .bodyToMono(responseType)))
                 .onErrorResume(WebClientResponseException.class, e -> {
                     System.err.println("Error en selectWithFilter: " + e.getResponseBodyAsString());
                     return Mono.just(Collections.emptyList());
+                }));
+    }
+
+    /**
+     * SELECT paginado por cursor (keyset): registros con id mayor que el cursor, ordenados por id.
+     * Los filtros y la proyección de la consulta base se mantienen.
+     */
+    public <T> Mono<List<T>> selectPage(PostgrestQuery query, String after, int limit,
+                                        ParameterizedTypeReference<List<T>> responseType) {
+        PostgrestQuery page = query.copy().orderBy("id", true).limit(limit);
+        if (after != null) {
+            page.gt("id", after);
+        }
+        return select(page, responseType);
+    }
+
+    /**
+     * SELECT por rango de filas usando el header Range de PostgREST.
+     * Retorna las filas junto al Content-Range informado por Supabase.
+     */
+    public <T> Mono<RangeResult<T>> selectRange(PostgrestQuery query, long from, long to,
+                                                ParameterizedTypeReference<List<T>> responseType) {
+        URI uri = toUri(query.copy().orderBy("id", true));
+        return resilience.apply(query.getTable(), Operation.READ, webClient.get()
+                        .uri(uri)
+                        .header("Range-Unit", "items")
+                        .header("Range", from + "-" + to)
+                        .retrieve()
+                        .toEntity(responseType))
+                .map(entity -> new RangeResult<>(
+                        entity.getBody() != null ? entity.getBody() : Collections.<T>emptyList(),
+                        entity.getHeaders().getFirst("Content-Range")))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    System.err.println("Error en selectRange: " + e.getResponseBodyAsString());
+                    return Mono.just(new RangeResult<>(Collections.emptyList(), null));
+                });
+    }
+
+    /**
+     * COUNT exacto de las filas que cumplen los filtros de la consulta (HEAD con Prefer: count=exact).
+     * Lee el total que PostgREST informa tras la barra del header Content-Range; retorna vacío si no viene.
+     */
+    public Mono<Long> count(PostgrestQuery query) {
+        URI uri = toUri(query);
+        return resilience.apply(query.getTable(), Operation.READ, webClient.head()
+                        .uri(uri)
+                        .header("Prefer", "count=exact")
+                        .retrieve()
+                        .toBodilessEntity())
+                .flatMap(entity -> {
+                    String contentRange = entity.getHeaders().getFirst("Content-Range");
+                    int slash = contentRange != null ? contentRange.lastIndexOf('/') : -1;
+                    if (slash < 0 || contentRange.endsWith("*")) {
+                        return Mono.empty();
+                    }
+                    return Mono.just(Long.parseLong(contentRange.substring(slash + 1)));
+                })
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    System.err.println("Error en count (" + query.getTable() + "): " + e.getStatusCode());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * SELECT en streaming de toda la consulta, ordenada por id.
+     * Recorre la tabla en páginas por cursor (id > último, supabase.stream.page-size filas) porque
+     * PostgREST corta cada respuesta en max-rows sin avisar; una página incompleta marca el final.
+     * Dentro de cada página el arreglo JSON se decodifica elemento a elemento y con backpressure,
+     * por lo que la memoria usada no depende del tamaño del resultado.
+     * Un error 4xx en la primera página retorna vacío; en las siguientes se propaga, para no
+     * entregar un resultado truncado como si estuviera completo.
+     */
+    public <T> Flux<T> stream(PostgrestQuery query, Class<T> elementType, Function<T, ?> idExtractor) {
+        return Flux.defer(() -> {
+            Sinks.Many<Optional<String>> cursors = Sinks.many().unicast().onBackpressureBuffer();
+            cursors.tryEmitNext(Optional.empty());
+            return cursors.asFlux()
+                    .concatMap(after -> {
+                        AtomicInteger rows = new AtomicInteger();
+                        AtomicReference<Object> lastId = new AtomicReference<>();
+                        return streamPage(query, after.orElse(null), elementType)
+                                .doOnNext(row -> {
+                                    rows.incrementAndGet();
+                                    lastId.set(idExtractor.apply(row));
+                                })
+                                .doOnComplete(() -> {
+                                    if (rows.get() < streamPageSize || lastId.get() == null) {
+                                        cursors.tryEmitComplete();
+                                    } else {
+                                        cursors.tryEmitNext(Optional.of(String.valueOf(lastId.get())));
+                                    }
+                                });
+                    }, 0);
+        });
+    }
+
+    private <T> Flux<T> streamPage(PostgrestQuery query, String after, Class<T> elementType) {
+        PostgrestQuery page = query.copy().orderBy("id", true).limit(streamPageSize);
+        if (after != null) {
+            page.gt("id", after);
+        }
+        return resilience.applyStream(query.getTable(), webClient.get()
+                        .uri(toUri(page))
+                        .retrieve()
+                        .bodyToFlux(elementType))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    System.err.println("Error en stream (" + query.getTable() + "): " + e.getResponseBodyAsString());
+                    if (after != null) {
+                        return Flux.error(new IllegalStateException(
+                                "Stream de " + query.getTable() + " interrumpido después de id " + after, e));
+                    }
+                    return Flux.empty();
                 });
     }
 
@@ -64,11 +225,11 @@ public class SupabaseService {
      * INSERT: Inserta un nuevo registro
      */
     public <T> Mono<List<T>> insert(String table, Object body, ParameterizedTypeReference<List<T>> responseType) {
-        return webClient.post()
-                .uri("/rest/v1/" + table)
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(responseType)
+        return resilience.apply(table, Operation.WRITE, webClient.post()
+                        .uri("/rest/v1/" + table)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToMono(responseType))
                 .doOnNext(result -> System.out.println("Insert exitoso en " + table + ": " + result))
                 .onErrorResume(WebClientResponseException.class, e -> {
                     System.err.println("Error en insert (" + table + "): " + e.getStatusCode() + " - " + e.getResponseBodyAsString());
@@ -76,15 +237,61 @@ public class SupabaseService {
                 });
     }
 
+    /**
+     * INSERT masivo: Inserta varios registros en un solo POST (arreglo JSON)
+     */
+    public <T> Mono<List<T>> insertMany(String table, List<?> rows, ParameterizedTypeReference<List<T>> responseType) {
+        if (rows == null || rows.isEmpty()) {
+            return Mono.just(Collections.emptyList());
+        }
+        return resilience.apply(table, Operation.WRITE, webClient.post()
+                        .uri("/rest/v1/" + table)
+                        .bodyValue(rows)
+                        .retrieve()
+                        .bodyToMono(responseType))
+                .doOnNext(result -> System.out.println("Insert masivo exitoso en " + table + ": " + result.size() + " registros"))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    System.err.println("Error en insertMany (" + table + "): " + e.getStatusCode() + " - " + e.getResponseBodyAsString());
+                    return Mono.just(Collections.emptyList());
+                });
+    }
+
+    /**
+     * RPC: Llama a una función de Postgres expuesta por PostgREST (POST /rest/v1/rpc/<función>)
+     * con argumentos con nombre. Retorna vacío si Supabase responde con un error 4xx.
+     */
+    public <T> Mono<T> rpc(String function, Map<String, ?> args, Class<T> responseType) {
+        if (!RPC_NAME_PATTERN.matcher(function).matches()) {
+            return Mono.error(new IllegalArgumentException("Nombre de función inválido: " + function));
+        }
+        return resilience.apply("rpc." + function, Operation.WRITE, webClient.post()
+                        .uri("/rest/v1/rpc/" + function)
+                        .bodyValue(args)
+                        .retrieve()
+                        .bodyToMono(responseType))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    System.err.println("Error en rpc (" + function + "): " + e.getStatusCode() + " - " + e.getResponseBodyAsString());
+                    return Mono.empty();
+                });
+    }
+
     /**
      * UPDATE: Actualiza un registro por ID
      */
     public <T> Mono<List<T>> update(String table, String id, Object body, ParameterizedTypeReference<List<T>> responseType) {
-        return webClient.patch()
-                .uri("/rest/v1/" + table + "?id=eq." + id)
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(responseType)
+        return updateWhere(PostgrestQuery.from(table).eq("id", id), body, responseType);
+    }
+
+    /**
+     * UPDATE: Actualiza los registros que cumplen los filtros de la consulta.
+     * La proyección (select=) de la consulta limita las columnas retornadas.
+     */
+    public <T> Mono<List<T>> updateWhere(PostgrestQuery query, Object body, ParameterizedTypeReference<List<T>> responseType) {
+        return resilience.apply(query.getTable(), Operation.WRITE, webClient.patch()
+                        .uri(toUri(query))
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToMono(responseType))
                 .onErrorResume(WebClientResponseException.class, e -> {
                     System.err.println("Error en update: " + e.getResponseBodyAsString());
                     return Mono.just(Collections.emptyList());
@@ -95,10 +302,17 @@ public class SupabaseService {
      * DELETE: Elimina un registro por ID
      */
     public Mono<Void> delete(String table, String id) {
-        return webClient.delete()
-                .uri("/rest/v1/" + table + "?id=eq." + id)
-                .retrieve()
-                .bodyToMono(Void.class)
+        return deleteWhere(PostgrestQuery.from(table).eq("id", id));
+    }
+
+    /**
+     * DELETE: Elimina los registros que cumplen los filtros de la consulta
+     */
+    public Mono<Void> deleteWhere(PostgrestQuery query) {
+        return resilience.apply(query.getTable(), Operation.WRITE, webClient.delete()
+                        .uri(toUri(query))
+                        .retrieve()
+                        .bodyToMono(Void.class))
                 .onErrorResume(WebClientResponseException.class, e -> {
                     System.err.println("Error en delete: " + e.getResponseBodyAsString());
                     return Mono.empty();
@@ -106,16 +320,74 @@ public class SupabaseService {
     }
 
     /**
-     * DELETE: Elimina registros con filtro personalizado
+     * DELETE: Elimina registros con un filtro PostgREST escrito a mano.
+     * Preferir deleteWhere(PostgrestQuery).
      */
     public Mono<Void> deleteWithFilter(String table, String filter) {
-        return webClient.delete()
-                .uri("/rest/v1/" + table + "?" + filter)
-                .retrieve()
-                .bodyToMono(Void.class)
+        return resilience.apply(table, Operation.WRITE, webClient.delete()
+                        .uri("/rest/v1/" + table + "?" + filter)
+                        .retrieve()
+                        .bodyToMono(Void.class))
                 .onErrorResume(WebClientResponseException.class, e -> {
                     System.err.println("Error en deleteWithFilter: " + e.getResponseBodyAsString());
                     return Mono.empty();
                 });
     }
+
+    // ============ Métodos auxiliares ============
+
+    /**
+     * URI absoluta de la consulta. Se pasa como URI ya codificada para que WebClient
+     * no vuelva a codificar los valores (ej: %40 -> %2540).
+     */
+    private URI toUri(PostgrestQuery query) {
+        return URI.create(supabaseUrl + query.toPath());
+    }
+
+    /**
+     * Single-flight: si ya hay una lectura idéntica en curso (misma URI y mismo tipo de respuesta)
+     * se reutiliza su resultado en vez de abrir otra petición. La entrada se elimina en cuanto
+     * la lectura termina, por lo que nunca se sirven datos de una petición ya completada.
+     * Todos los suscriptores reciben la misma lista y los mismos DTOs: deben tratarse como solo
+     * lectura y copiarse antes de modificarlos (ej: OrderDTO.withItems).
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> coalesce(String uri, ParameterizedTypeReference<?> responseType, Supplier<Mono<T>> request) {
+        String key = responseType.getType().getTypeName() + " " + uri;
+        return Mono.defer(() -> {
+            Mono<T> inFlight = (Mono<T>) inFlightReads.get(key);
+            if (inFlight != null) {
+                coalescedReads.increment();
+                return inFlight;
+            }
+
+            Mono<?>[] self = new Mono<?>[1];
+            Mono<T> shared = request.get()
+                    .doOnSubscribe(subscription -> upstreamReads.increment())
+                    .doFinally(signal -> inFlightReads.remove(key, self[0]))
+                    .share();
+            self[0] = shared;
+
+            Mono<T> existing = (Mono<T>) inFlightReads.putIfAbsent(key, shared);
+            if (existing != null) {
+                coalescedReads.increment();
+                return existing;
+            }
+            return shared;
+        });
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "supabase";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return Map.of(
+                "upstreamReads", upstreamReads.sum(),
+                "coalescedReads", coalescedReads.sum(),
+                "inFlightReads", inFlightReads.size()
+        );
+    }
 }
@@ -0,0 +1,16 @@
+package com.pokestore.poke_api.service;
+
+/**
+ * Supabase no respondió a tiempo, respondió con un error del servidor o su circuito está abierto.
+ * Se diferencia de "no encontrado": el llamador debe responder 503 y no una lista vacía.
+ */
+public class SupabaseUnavailableException extends RuntimeException {
+
+    public SupabaseUnavailableException(String message) {
+        super(message);
+    }
+
+    public SupabaseUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
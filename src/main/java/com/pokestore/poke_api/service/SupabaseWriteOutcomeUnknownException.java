@@ -0,0 +1,14 @@
+package com.pokestore.poke_api.service;
+
+/**
+ * Una escritura a Supabase falló después de enviarse (deadline, conexión cortada, 502/504...):
+ * la petición pudo haberse aplicado igual.
+ * El llamador no debe asumir que falló (ej: devolver stock de una orden que quizás existe)
+ * y el cliente debe consultar el resultado antes de reintentar.
+ */
+public class SupabaseWriteOutcomeUnknownException extends SupabaseUnavailableException {
+
+    public SupabaseWriteOutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,244 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.cache.BloomFilter;
+import com.pokestore.poke_api.dto.UserDTO;
+import com.pokestore.poke_api.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice local de emails y RUTs registrados (filtro de Bloom), usado por /check-email y /check-rut.
+ * Si el índice dice que un valor no existe, la respuesta se da desde memoria; si dice que podría
+ * existir, se confirma con Supabase. Se construye al iniciar leyendo solo email y rut de todos los
+ * usuarios y se reconstruye periódicamente, lo que además limpia los usuarios eliminados
+ * (un filtro de Bloom no permite quitar valores).
+ */
+@Service
+public class UserExistenceIndex implements MetricsSource {
+
+    // Eliminaciones acumuladas que adelantan la siguiente reconstrucción
+    private static final long REBUILD_AFTER_DELETES = 100;
+
+    private final SupabaseService supabaseService;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+
+    private volatile BloomFilter emails;
+    private volatile BloomFilter ruts;
+    // Filtros en construcción: las altas durante la reconstrucción se agregan también aquí
+    private volatile BloomFilter buildingEmails;
+    private volatile BloomFilter buildingRuts;
+    private volatile boolean ready;
+    private volatile Instant lastRebuild;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong indexedUsers = new AtomicLong();
+    private final AtomicLong deletesSinceRebuild = new AtomicLong();
+    private final LongAdder negativesServed = new LongAdder();
+    private final LongAdder possibleHits = new LongAdder();
+    private Disposable rebuildTask;
+
+    public UserExistenceIndex(
+            SupabaseService supabaseService,
+            @Value("${auth.existence-index.enabled:true}") boolean enabled,
+            @Value("${auth.existence-index.expected-insertions:100000}") long expectedInsertions,
+            @Value("${auth.existence-index.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${auth.existence-index.rebuild-minutes:30}") long rebuildMinutes) {
+        this.supabaseService = supabaseService;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = Duration.ofMinutes(rebuildMinutes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        rebuildTask = Flux.interval(Duration.ZERO, rebuildInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> rebuild().onErrorResume(e -> {
+                    System.err.println("Error al construir el índice de usuarios: " + e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuildTask != null) {
+            rebuildTask.dispose();
+        }
+    }
+
+    /**
+     * false solo si el email con seguridad no está registrado; true si hay que confirmar con Supabase
+     */
+    public boolean mightContainEmail(String email) {
+        return mightContain(emails, normalizeEmail(email));
+    }
+
+    /**
+     * false solo si el RUT con seguridad no está registrado; true si hay que confirmar con Supabase
+     */
+    public boolean mightContainRut(String rut) {
+        return mightContain(ruts, normalizeRut(rut));
+    }
+
+    /**
+     * Registra un usuario creado o actualizado a través de la API
+     */
+    public void onUserSaved(UserDTO user) {
+        if (user == null) {
+            return;
+        }
+        add(user.getEmail(), user.getRut());
+    }
+
+    /**
+     * Registra un usuario eliminado. Sus valores siguen en el filtro (solo provocan una consulta
+     * extra a Supabase) hasta la siguiente reconstrucción, que se adelanta si se acumulan muchas.
+     */
+    public void onUserDeleted() {
+        if (enabled && deletesSinceRebuild.incrementAndGet() >= REBUILD_AFTER_DELETES) {
+            rebuild().subscribe(null, e -> System.err.println("Error al reconstruir el índice de usuarios: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Reconstruye el índice desde Supabase y lo reemplaza al terminar.
+     * Mientras tanto se sigue respondiendo con el índice anterior. Solo se reemplaza si se leyeron
+     * todos los usuarios que informa un count=exact previo; si la lectura quedó incompleta se
+     * conserva el índice anterior (o, si no había, se sigue consultando a Supabase).
+     */
+    public Mono<Void> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        long capacity = Math.max(expectedInsertions, indexedUsers.get() * 2);
+        BloomFilter newEmails = new BloomFilter(capacity, falsePositiveRate);
+        BloomFilter newRuts = new BloomFilter(capacity, falsePositiveRate);
+        buildingEmails = newEmails;
+        buildingRuts = newRuts;
+        AtomicLong count = new AtomicLong();
+        long deletesAtStart = deletesSinceRebuild.get();
+
+        PostgrestQuery query = PostgrestQuery.from("users").select("id", "email", "rut");
+        return supabaseService.count(PostgrestQuery.from("users"))
+                .switchIfEmpty(Mono.error(new IllegalStateException("Supabase no informó el total de usuarios")))
+                .flatMap(expected -> supabaseService.stream(query, UserDTO.class, UserDTO::getId)
+                        .doOnNext(user -> {
+                            putIfPresent(newEmails, normalizeEmail(user.getEmail()));
+                            putIfPresent(newRuts, normalizeRut(user.getRut()));
+                            count.incrementAndGet();
+                        })
+                        .then(Mono.fromRunnable(() -> {
+                            // Los usuarios eliminados durante la lectura explican filas de menos
+                            long deletedMeanwhile = deletesSinceRebuild.get() - deletesAtStart;
+                            if (count.get() + deletedMeanwhile < expected) {
+                                System.err.println("Índice de usuarios incompleto (" + count.get() + " de " + expected
+                                        + "): se conserva el índice anterior");
+                                return;
+                            }
+                            emails = newEmails;
+                            ruts = newRuts;
+                            indexedUsers.set(count.get());
+                            deletesSinceRebuild.addAndGet(-deletesAtStart);
+                            lastRebuild = Instant.now();
+                            ready = true;
+                        })))
+                .doFinally(signal -> {
+                    buildingEmails = null;
+                    buildingRuts = null;
+                    rebuilding.set(false);
+                })
+                .then();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "userExistenceIndex";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        BloomFilter current = emails;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("ready", ready);
+        metrics.put("indexedUsers", indexedUsers.get());
+        metrics.put("bitSize", current != null ? current.getBitSize() : 0);
+        metrics.put("hashFunctions", current != null ? current.getHashFunctions() : 0);
+        metrics.put("deletesSinceRebuild", deletesSinceRebuild.get());
+        metrics.put("negativesServed", negativesServed.sum());
+        metrics.put("possibleHits", possibleHits.sum());
+        metrics.put("lastRebuild", lastRebuild != null ? lastRebuild.toString() : null);
+        return metrics;
+    }
+
+    // ============ Métodos auxiliares ============
+
+    private boolean mightContain(BloomFilter filter, String normalized) {
+        // Sin índice listo no se puede afirmar que el valor no existe
+        if (!enabled || !ready || filter == null || normalized == null) {
+            return true;
+        }
+        if (filter.mightContain(normalized)) {
+            possibleHits.increment();
+            return true;
+        }
+        negativesServed.increment();
+        return false;
+    }
+
+    private void add(String email, String rut) {
+        String normalizedEmail = normalizeEmail(email);
+        String normalizedRut = normalizeRut(rut);
+        putIfPresent(emails, normalizedEmail);
+        putIfPresent(ruts, normalizedRut);
+        putIfPresent(buildingEmails, normalizedEmail);
+        putIfPresent(buildingRuts, normalizedRut);
+        indexedUsers.incrementAndGet();
+    }
+
+    private static void putIfPresent(BloomFilter filter, String value) {
+        if (filter != null && value != null) {
+            filter.put(value);
+        }
+    }
+
+    static String normalizeEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * "12.345.678-k" y "12345678K" se indexan igual
+     */
+    static String normalizeRut(String rut) {
+        if (rut == null || rut.isBlank()) {
+            return null;
+        }
+        return rut.replaceAll("[.\\s-]", "").toUpperCase(Locale.ROOT);
+    }
+}
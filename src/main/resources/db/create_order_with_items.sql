@@ -0,0 +1,66 @@
+-- Creación atómica de una orden con sus items (orders.create.mode=rpc).
+-- Se invoca vía PostgREST: POST /rest/v1/rpc/create_order_with_items
+-- Body: {"p_user_id": "...", "p_shipping_address": "...", "p_notes": "...",
+--        "p_items": [{"product_id": "...", "quantity": 2}, ...], "p_order_id": null}
+-- p_order_id es opcional: el journal de recepción (orders.intake.mode=journal) envía el ID que ya
+-- le entregó al cliente; si una orden con ese ID ya existe la llamada falla y no se duplica.
+-- Retorna la orden creada con sus items en la propiedad "items".
+-- Igual que el flujo de varias llamadas: precios del catálogo y productos inexistentes omitidos.
+
+-- La versión anterior sin p_order_id haría ambigua la llamada desde PostgREST
+drop function if exists public.create_order_with_items(uuid, text, text, jsonb);
+
+create or replace function public.create_order_with_items(
+    p_user_id uuid,
+    p_shipping_address text,
+    p_notes text,
+    p_items jsonb,
+    p_order_id uuid default null
+)
+returns jsonb
+language plpgsql
+security invoker
+as $$
+declare
+    v_order public.orders%rowtype;
+    v_total numeric := 0;
+    v_items jsonb;
+begin
+    if p_items is null or jsonb_typeof(p_items) <> 'array' or jsonb_array_length(p_items) = 0 then
+        raise exception 'La orden debe tener al menos un producto' using errcode = '22023';
+    end if;
+
+    create temporary table if not exists pg_temp.cart (
+        product_id uuid,
+        quantity integer,
+        unit_price numeric
+    ) on commit drop;
+    delete from pg_temp.cart;
+
+    insert into pg_temp.cart (product_id, quantity, unit_price)
+    select (e ->> 'product_id')::uuid, (e ->> 'quantity')::integer, p.price
+    from jsonb_array_elements(p_items) as e
+    join public.products p on p.id = (e ->> 'product_id')::uuid;
+
+    select coalesce(sum(unit_price * quantity), 0) into v_total from pg_temp.cart;
+
+    insert into public.orders (id, user_id, status, total_amount, shipping_address, notes)
+    values (coalesce(p_order_id, gen_random_uuid()), p_user_id, 'pending', v_total, p_shipping_address, p_notes)
+    returning * into v_order;
+
+    with inserted as (
+        insert into public.order_items (order_id, product_id, quantity, unit_price)
+        select v_order.id, product_id, quantity, unit_price
+        from pg_temp.cart
+        returning *
+    )
+    select coalesce(jsonb_agg(to_jsonb(inserted)), '[]'::jsonb) into v_items from inserted;
+
+    return to_jsonb(v_order) || jsonb_build_object('items', v_items);
+end;
+$$;
+
+-- La función confía en p_user_id: solo la API (con la service_role key) puede llamarla.
+-- Postgres y Supabase dan EXECUTE a public/anon/authenticated por defecto, así que se revoca explícitamente.
+revoke execute on function public.create_order_with_items(uuid, text, text, jsonb, uuid) from public, anon, authenticated;
+grant execute on function public.create_order_with_items(uuid, text, text, jsonb, uuid) to service_role;
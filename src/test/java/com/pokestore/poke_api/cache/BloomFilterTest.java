@@ -0,0 +1,52 @@
+package com.pokestore.poke_api.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+	@Test
+	void neverReportsFalseNegatives() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("user-" + i + "@pokestore.cl");
+		}
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain("user-" + i + "@pokestore.cl"));
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearConfiguredValue() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("present-" + i);
+		}
+		int falsePositives = 0;
+		int probes = 100_000;
+		for (int i = 0; i < probes; i++) {
+			if (filter.mightContain("absent-" + i)) {
+				falsePositives++;
+			}
+		}
+		// Con el filtro a capacidad la tasa observada debe quedar cerca del 1% configurado
+		double rate = (double) falsePositives / probes;
+		assertTrue(rate < 0.02, "tasa de falsos positivos " + rate);
+	}
+
+	@Test
+	void emptyFilterContainsNothing() {
+		BloomFilter filter = new BloomFilter(100, 0.01);
+		assertFalse(filter.mightContain("12345678-9"));
+	}
+
+	@Test
+	void rejectsInvalidParameters() {
+		assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+		assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+	}
+
+}
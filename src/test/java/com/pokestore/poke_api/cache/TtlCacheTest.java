@@ -0,0 +1,99 @@
+package com.pokestore.poke_api.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TtlCacheTest {
+
+	@Test
+	void expiredEntriesAreNotReturned() {
+		TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(5), 10);
+		cache.put("vigente", "a");
+		cache.put("vencida", "b", System.currentTimeMillis() - 1);
+
+		assertEquals("a", cache.get("vigente"));
+		assertNull(cache.get("vencida"));
+		assertEquals(1, cache.size());
+		assertEquals(1L, cache.getHits());
+		assertEquals(1L, cache.getMisses());
+	}
+
+	@Test
+	void entriesExpireAfterTheDefaultTtl() throws InterruptedException {
+		TtlCache<String, String> cache = new TtlCache<>(Duration.ofMillis(30), 10);
+		cache.put("token", "valor");
+		assertEquals("valor", cache.get("token"));
+
+		Thread.sleep(60);
+		assertNull(cache.get("token"));
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedEntry() {
+		TtlCache<String, Integer> cache = new TtlCache<>(Duration.ofMinutes(5), 3);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		// Leer "a" la convierte en la más reciente: la próxima expulsión es "b"
+		cache.get("a");
+		cache.put("d", 4);
+
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(3, cache.get("c"));
+		assertEquals(4, cache.get("d"));
+		assertEquals(1L, cache.getEvictions());
+	}
+
+	@Test
+	void skipsEntriesThatCannotBeEvicted() {
+		TtlCache<String, Integer> cache = new TtlCache<>(Duration.ofMinutes(5), 2, value -> value > 0);
+		cache.put("en-curso", 0);
+		cache.put("lista", 1);
+		cache.put("nueva", 2);
+
+		assertEquals(0, cache.get("en-curso"));
+		assertNull(cache.get("lista"));
+		assertEquals(2, cache.get("nueva"));
+
+		// Si ninguna se puede expulsar la caché supera el máximo y lo informa
+		TtlCache<String, Integer> pinned = new TtlCache<>(Duration.ofMinutes(5), 1, value -> false);
+		pinned.put("a", 1);
+		pinned.put("b", 2);
+		assertEquals(2, pinned.size());
+		assertEquals(1L, pinned.getOverflows());
+	}
+
+	@Test
+	void putIfAbsentKeepsTheCurrentValue() {
+		TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(5), 10);
+		assertNull(cache.putIfAbsent("clave", "primero"));
+		assertEquals("primero", cache.putIfAbsent("clave", "segundo"));
+		assertEquals("primero", cache.get("clave"));
+	}
+
+	@Test
+	void removeWithValueOnlyRemovesTheSameInstance() {
+		TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(5), 10);
+		String current = new String("valor");
+		cache.put("clave", current);
+
+		cache.remove("clave", new String("valor"));
+		assertEquals("valor", cache.get("clave"));
+
+		cache.remove("clave", current);
+		assertNull(cache.get("clave"));
+	}
+
+	@Test
+	void rejectsNonPositiveSize() {
+		assertThrows(IllegalArgumentException.class, () -> new TtlCache<String, String>(Duration.ofMinutes(1), 0));
+	}
+
+}
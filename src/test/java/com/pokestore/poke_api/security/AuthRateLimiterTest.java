@@ -0,0 +1,113 @@
+package com.pokestore.poke_api.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthRateLimiterTest {
+
+	@Test
+	void allowsTheBurstAndThenRejectsWithRetryAfter() {
+		AuthRateLimiter limiter = new AuthRateLimiter(new MockEnvironment()
+				.withProperty("auth.rate-limit.ip.per-minute", "60")
+				.withProperty("auth.rate-limit.ip.burst", "3"));
+		MockHttpServletRequest request = request("10.0.0.1");
+
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limiter.tryAcquire(request, null).allowed());
+		}
+		AuthRateLimiter.Decision rejected = limiter.tryAcquire(request, null);
+		limiter.stop();
+
+		assertFalse(rejected.allowed());
+		assertEquals(AuthRateLimiter.Scope.IP, rejected.scope());
+		// Un intento por segundo: el siguiente token llega en menos de un segundo
+		assertTrue(rejected.retryAfterMillis() > 0 && rejected.retryAfterMillis() <= 1000,
+				"retryAfterMillis " + rejected.retryAfterMillis());
+		assertEquals(1L, rejected.retryAfterSeconds());
+	}
+
+	@Test
+	void refillsAtTheConfiguredRate() throws InterruptedException {
+		// 6000 por minuto: un token cada 10 ms
+		AuthRateLimiter limiter = new AuthRateLimiter(new MockEnvironment()
+				.withProperty("auth.rate-limit.ip.per-minute", "6000")
+				.withProperty("auth.rate-limit.ip.burst", "2"));
+		MockHttpServletRequest request = request("10.0.0.2");
+
+		assertTrue(limiter.tryAcquire(request, null).allowed());
+		assertTrue(limiter.tryAcquire(request, null).allowed());
+		assertFalse(limiter.tryAcquire(request, null).allowed());
+
+		Thread.sleep(30);
+		assertTrue(limiter.tryAcquire(request, null).allowed());
+		limiter.stop();
+	}
+
+	@Test
+	void limitsEachEmailIndependentlyOfCase() {
+		AuthRateLimiter limiter = new AuthRateLimiter(new MockEnvironment()
+				.withProperty("auth.rate-limit.email.per-minute", "1")
+				.withProperty("auth.rate-limit.email.burst", "1"));
+		MockHttpServletRequest request = request("10.0.0.3");
+
+		assertTrue(limiter.tryAcquire(request, "Ash@PokeStore.cl").allowed());
+		AuthRateLimiter.Decision sameEmail = limiter.tryAcquire(request, " ash@pokestore.cl ");
+		boolean otherEmail = limiter.tryAcquire(request, "misty@pokestore.cl").allowed();
+		limiter.stop();
+
+		assertFalse(sameEmail.allowed());
+		assertEquals(AuthRateLimiter.Scope.EMAIL, sameEmail.scope());
+		assertTrue(otherEmail);
+	}
+
+	@Test
+	void usesForwardedForOnlyWhenTrusted() {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("auth.rate-limit.ip.per-minute", "1")
+				.withProperty("auth.rate-limit.ip.burst", "1");
+
+		AuthRateLimiter untrusted = new AuthRateLimiter(environment);
+		assertTrue(untrusted.tryAcquire(forwarded("10.0.0.4", "200.1.1.1"), null).allowed());
+		// Sin confiar en el header, ambos clientes comparten la IP del proxy
+		assertFalse(untrusted.tryAcquire(forwarded("10.0.0.4", "200.1.1.2"), null).allowed());
+		untrusted.stop();
+
+		AuthRateLimiter trusted = new AuthRateLimiter(environment.withProperty("auth.rate-limit.trust-forwarded-for", "true"));
+		assertTrue(trusted.tryAcquire(forwarded("10.0.0.4", "200.1.1.1, 10.0.0.4"), null).allowed());
+		assertTrue(trusted.tryAcquire(forwarded("10.0.0.4", "200.1.1.2, 10.0.0.4"), null).allowed());
+		assertFalse(trusted.tryAcquire(forwarded("10.0.0.4", "200.1.1.1"), null).allowed());
+		trusted.stop();
+	}
+
+	@Test
+	void allowsEverythingWhenDisabled() {
+		AuthRateLimiter limiter = new AuthRateLimiter(new MockEnvironment()
+				.withProperty("auth.rate-limit.enabled", "false")
+				.withProperty("auth.rate-limit.ip.per-minute", "1")
+				.withProperty("auth.rate-limit.ip.burst", "1"));
+		MockHttpServletRequest request = request("10.0.0.5");
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(limiter.tryAcquire(request, "ash@pokestore.cl").allowed());
+		}
+		limiter.stop();
+	}
+
+	private static MockHttpServletRequest request(String remoteAddr) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr(remoteAddr);
+		return request;
+	}
+
+	private static MockHttpServletRequest forwarded(String remoteAddr, String forwardedFor) {
+		MockHttpServletRequest request = request(remoteAddr);
+		request.addHeader("X-Forwarded-For", forwardedFor);
+		return request;
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.service.SupabaseResilience.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+	@Test
+	void opensAfterConsecutiveUpstreamFailures() {
+		CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+		for (int i = 0; i < 3; i++) {
+			assertTrue(breaker.tryAcquire());
+			breaker.onResult(true);
+		}
+		assertFalse(breaker.tryAcquire());
+		assertEquals("OPEN", breaker.snapshot().get("state"));
+		assertEquals(1L, breaker.snapshot().get("timesOpened"));
+	}
+
+	@Test
+	void clientErrorsAndSuccessesResetTheFailureCount() {
+		CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+		breaker.onResult(true);
+		breaker.onResult(true);
+		breaker.onResult(false);
+		breaker.onResult(true);
+		breaker.onResult(true);
+		assertTrue(breaker.tryAcquire());
+		assertEquals("CLOSED", breaker.snapshot().get("state"));
+	}
+
+	@Test
+	void halfOpenLetsASingleProbeThrough() {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0);
+		breaker.onResult(true);
+
+		assertTrue(breaker.tryAcquire());
+		assertEquals("HALF_OPEN", breaker.snapshot().get("state"));
+		assertFalse(breaker.tryAcquire());
+
+		breaker.onSuccess();
+		assertEquals("CLOSED", breaker.snapshot().get("state"));
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	void failedProbeReopensTheCircuit() {
+		CircuitBreaker breaker = new CircuitBreaker(5, 0);
+		for (int i = 0; i < 5; i++) {
+			breaker.onResult(true);
+		}
+		assertTrue(breaker.tryAcquire());
+		// En HALF_OPEN basta una falla para volver a abrir, aunque el umbral sea mayor
+		breaker.onResult(true);
+		assertEquals("OPEN", breaker.snapshot().get("state"));
+		assertEquals(2L, breaker.snapshot().get("timesOpened"));
+	}
+
+	@Test
+	void cancelledProbeFreesTheHalfOpenSlot() {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0);
+		breaker.onResult(true);
+		assertTrue(breaker.tryAcquire());
+		breaker.onCancel();
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	void timeoutsAreTransientButClientErrorsAreNot() {
+		assertTrue(SupabaseResilience.isTransient(new TimeoutException()));
+		assertFalse(SupabaseResilience.isTransient(new IllegalArgumentException()));
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.CreateOrderDTO;
+import com.pokestore.poke_api.dto.CreateOrderItemDTO;
+import com.pokestore.poke_api.dto.OrderDTO;
+import com.pokestore.poke_api.dto.OrderItemDTO;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementación en memoria de create_order_with_items, con la misma semántica que la función SQL:
+ * precios del catálogo, productos inexistentes omitidos, total calculado y orden e items creados juntos.
+ * Doble de pruebas para ejercitar la semántica de creación de órdenes sin Supabase.
+ */
+public class LocalOrderCreationGateway implements OrderCreationGateway {
+
+	private final Map<UUID, BigDecimal> prices;
+	private final Map<UUID, OrderDTO> orders = new ConcurrentHashMap<>();
+
+	public LocalOrderCreationGateway(Map<UUID, BigDecimal> prices) {
+		this.prices = Map.copyOf(prices);
+	}
+
+	@Override
+	public Mono<OrderDTO> createOrder(UUID requestedId, String userId, CreateOrderDTO order) {
+		return Mono.fromSupplier(() -> {
+			if (order.getItems() == null || order.getItems().isEmpty()) {
+				throw new IllegalArgumentException("La orden debe tener al menos un producto");
+			}
+
+			Instant now = Instant.now();
+			UUID orderId = requestedId != null ? requestedId : UUID.randomUUID();
+			BigDecimal total = BigDecimal.ZERO;
+			List<OrderItemDTO> items = new ArrayList<>();
+
+			for (CreateOrderItemDTO item : order.getItems()) {
+				BigDecimal unitPrice = prices.get(item.getProductId());
+				if (unitPrice == null) {
+					continue;
+				}
+				BigDecimal subtotal = unitPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
+				total = total.add(subtotal);
+
+				OrderItemDTO created = new OrderItemDTO();
+				created.setId(UUID.randomUUID());
+				created.setOrderId(orderId);
+				created.setProductId(item.getProductId());
+				created.setQuantity(item.getQuantity());
+				created.setUnitPrice(unitPrice);
+				created.setSubtotal(subtotal);
+				created.setCreatedAt(now);
+				items.add(created);
+			}
+
+			OrderDTO created = new OrderDTO(orderId, UUID.fromString(userId), "pending", total,
+					order.getShippingAddress(), order.getNotes(), now, now);
+			created.setItems(items);
+			orders.put(orderId, created);
+			return created;
+		});
+	}
+
+	/**
+	 * Orden creada por esta instancia, o null si no existe
+	 */
+	public OrderDTO getOrder(UUID orderId) {
+		return orders.get(orderId);
+	}
+}
@@ -0,0 +1,66 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.CreateOrderDTO;
+import com.pokestore.poke_api.dto.CreateOrderItemDTO;
+import com.pokestore.poke_api.dto.OrderDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalOrderCreationGatewayTest {
+
+	private static final UUID PIKACHU = UUID.randomUUID();
+	private static final UUID CHARMANDER = UUID.randomUUID();
+	private static final String USER_ID = UUID.randomUUID().toString();
+
+	private final LocalOrderCreationGateway gateway = new LocalOrderCreationGateway(Map.of(
+			PIKACHU, new BigDecimal("19990.00"),
+			CHARMANDER, new BigDecimal("9990.00")));
+
+	@Test
+	void pricesItemsFromTheCatalogAndSkipsUnknownProducts() {
+		CreateOrderDTO order = new CreateOrderDTO("Av. Providencia 1234", null, List.of(
+				new CreateOrderItemDTO(PIKACHU, 2),
+				new CreateOrderItemDTO(CHARMANDER, 1),
+				new CreateOrderItemDTO(UUID.randomUUID(), 5)));
+
+		OrderDTO created = gateway.createOrder(null, USER_ID, order).block();
+
+		assertNotNull(created);
+		assertEquals("pending", created.getStatus());
+		assertEquals(new BigDecimal("49970.00"), created.getTotalAmount());
+		assertEquals(2, created.getItems().size());
+		assertEquals(new BigDecimal("39980.00"), created.getItems().get(0).getSubtotal());
+		assertEquals(created.getId(), created.getItems().get(0).getOrderId());
+	}
+
+	@Test
+	void keepsTheRequestedOrderId() {
+		UUID orderId = UUID.randomUUID();
+		CreateOrderDTO order = new CreateOrderDTO(null, null, List.of(new CreateOrderItemDTO(PIKACHU, 1)));
+
+		OrderDTO created = gateway.createOrder(orderId, USER_ID, order).block();
+
+		assertNotNull(created);
+		assertEquals(orderId, created.getId());
+		assertSame(created, gateway.getOrder(orderId));
+		assertNull(gateway.getOrder(UUID.randomUUID()));
+	}
+
+	@Test
+	void rejectsOrdersWithoutItems() {
+		CreateOrderDTO order = new CreateOrderDTO(null, null, List.of());
+
+		assertThrows(IllegalArgumentException.class, () -> gateway.createOrder(null, USER_ID, order).block());
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.CreateOrderDTO;
+import com.pokestore.poke_api.dto.CreateOrderItemDTO;
+import com.pokestore.poke_api.dto.OrderDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderIntakeDrainerTest {
+
+	private static final String USER_ID = UUID.randomUUID().toString();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void writeTimeoutsAndUpstreamErrorsAreRetriedWithoutCountingAsRejections() throws Exception {
+		List<RuntimeException> errors = List.of(
+				new SupabaseWriteOutcomeUnknownException("sin respuesta", new TimeoutException()),
+				new SupabaseUnavailableException("circuito abierto"),
+				new IllegalStateException("conexión reiniciada"));
+
+		for (RuntimeException error : errors) {
+			OrderIntakeJournal journal = new OrderIntakeJournal(directory.resolve(error.getClass().getSimpleName()).toString(), 1, 100);
+			ScriptedOrderService orderService = new ScriptedOrderService(Mono.error(error));
+			// Con max-rejections=1 un solo rechazo bastaría para descartar la orden
+			OrderIntakeDrainer drainer = new OrderIntakeDrainer(journal, orderService, 200, 50, 4, 1);
+			journal.append(USER_ID, order()).block();
+
+			drainer.drain().block();
+
+			assertEquals(1, journal.pendingCount(), error.getClass().getSimpleName());
+			assertTrue(orderService.released.isEmpty(), error.getClass().getSimpleName());
+			assertEquals(1L, drainer.getMetrics().get("retried"));
+			assertEquals(0L, drainer.getMetrics().get("rejected"));
+			journal.stop();
+		}
+	}
+
+	@Test
+	void explicitRejectionsMarkTheOrderFailedAndReleaseItsStock() throws Exception {
+		OrderIntakeJournal journal = open();
+		ScriptedOrderService orderService = new ScriptedOrderService(
+				Mono.error(new SupabaseRejectedException("Supabase no creó la orden")));
+		OrderIntakeDrainer drainer = new OrderIntakeDrainer(journal, orderService, 200, 50, 4, 1);
+		OrderIntakeJournal.IntakeEntry entry = journal.append(USER_ID, order()).block();
+
+		drainer.drain().block();
+
+		assertEquals(0, journal.pendingCount());
+		assertEquals(List.of(entry.orderId()), orderService.released);
+		assertEquals(1L, drainer.getMetrics().get("rejected"));
+		journal.stop();
+	}
+
+	@Test
+	void persistedOrdersAreMarkedDone() throws Exception {
+		OrderIntakeJournal journal = open();
+		ScriptedOrderService orderService = new ScriptedOrderService(Mono.just(new OrderDTO()));
+		OrderIntakeDrainer drainer = new OrderIntakeDrainer(journal, orderService, 200, 50, 4, 5);
+		journal.append(USER_ID, order()).block();
+		journal.append(USER_ID, order()).block();
+
+		drainer.drain().block();
+
+		assertEquals(0, journal.pendingCount());
+		assertEquals(2L, drainer.getMetrics().get("persisted"));
+		journal.stop();
+	}
+
+	private OrderIntakeJournal open() throws IOException {
+		return new OrderIntakeJournal(directory.toString(), 1, 100);
+	}
+
+	private static CreateOrderDTO order() {
+		return new CreateOrderDTO("Av. Providencia 1234", null, List.of(new CreateOrderItemDTO(UUID.randomUUID(), 1)));
+	}
+
+	/**
+	 * OrderService que responde siempre lo mismo al persistir y registra las órdenes liberadas
+	 */
+	private static final class ScriptedOrderService extends OrderService {
+
+		private final Mono<OrderDTO> result;
+		private final List<UUID> released = new ArrayList<>();
+
+		ScriptedOrderService(Mono<OrderDTO> result) {
+			super(null, Optional.empty(), null, null, null, Optional.empty());
+			this.result = result;
+		}
+
+		@Override
+		public Mono<OrderDTO> persistAcceptedOrder(OrderIntakeJournal.IntakeEntry entry) {
+			return result;
+		}
+
+		@Override
+		public void releaseRejectedOrder(OrderIntakeJournal.IntakeEntry entry) {
+			released.add(entry.orderId());
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+package com.pokestore.poke_api.service;
+
+import com.pokestore.poke_api.dto.CreateOrderDTO;
+import com.pokestore.poke_api.dto.CreateOrderItemDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderIntakeJournalTest {
+
+	private static final String USER_ID = UUID.randomUUID().toString();
+	private static final UUID PRODUCT_ID = UUID.randomUUID();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void pendingOrdersAreReplayedAfterRestart() throws Exception {
+		OrderIntakeJournal journal = open();
+		OrderIntakeJournal.IntakeEntry first = journal.append(USER_ID, order("primera")).block();
+		OrderIntakeJournal.IntakeEntry second = journal.append(USER_ID, order("segunda")).block();
+		OrderIntakeJournal.IntakeEntry third = journal.append(USER_ID, order(null)).block();
+		journal.markDone(second.orderId()).block();
+		journal.stop();
+
+		OrderIntakeJournal reopened = open();
+		List<OrderIntakeJournal.IntakeEntry> pending = reopened.pending(10, entry -> true);
+		reopened.stop();
+
+		assertEquals(2, pending.size());
+		assertEquals(first.orderId(), pending.get(0).orderId());
+		assertEquals("primera", pending.get(0).order().getNotes());
+		assertEquals(PRODUCT_ID, pending.get(0).order().getItems().get(0).getProductId());
+		assertEquals(3, pending.get(0).order().getItems().get(0).getQuantity().intValue());
+		assertEquals(third.orderId(), pending.get(1).orderId());
+		assertNull(pending.get(1).order().getNotes());
+	}
+
+	@Test
+	void failedOrdersAreNotReplayed() throws Exception {
+		OrderIntakeJournal journal = open();
+		OrderIntakeJournal.IntakeEntry entry = journal.append(USER_ID, order("rechazada")).block();
+		journal.markFailed(entry.orderId()).block();
+		journal.stop();
+
+		OrderIntakeJournal reopened = open();
+		int pending = reopened.pendingCount();
+		reopened.stop();
+
+		assertEquals(0, pending);
+	}
+
+	@Test
+	void tornTailIsIgnoredOnReplay() throws Exception {
+		OrderIntakeJournal journal = open();
+		journal.append(USER_ID, order("completa")).block();
+		journal.append(USER_ID, order("completa")).block();
+		journal.stop();
+
+		// Registro a medio escribir tras los válidos: largo y tipo presentes, CRC y payload no
+		Path segment = segments().get(segments().size() - 1);
+		byte[] bytes = Files.readAllBytes(segment);
+		int end = bytes.length;
+		while (end > 0 && bytes[end - 1] == 0) {
+			end--;
+		}
+		ByteBuffer.wrap(bytes, end, 16).putInt(120).putInt(0xCAFE).put((byte) 1).put(new byte[] {7, 7, 7});
+		Files.write(segment, bytes);
+
+		OrderIntakeJournal reopened = open();
+		int pending = reopened.pendingCount();
+		OrderIntakeJournal.IntakeEntry appended = reopened.append(USER_ID, order("nueva")).block();
+		reopened.stop();
+
+		assertEquals(2, pending);
+		OrderIntakeJournal again = open();
+		assertEquals(3, again.pendingCount());
+		assertEquals(1, again.pending(10, entry -> entry.orderId().equals(appended.orderId())).size());
+		again.stop();
+	}
+
+	@Test
+	void segmentsAreDeletedOnceAllTheirOrdersAreDone() throws Exception {
+		OrderIntakeJournal journal = open();
+		// Notas de ~60 KB: unas 17 órdenes por segmento de 1 MB
+		String notes = "x".repeat(60_000);
+		List<OrderIntakeJournal.IntakeEntry> entries = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			entries.add(journal.append(USER_ID, order(notes)).block());
+		}
+		int initial = segments().size();
+		assertTrue(initial >= 3, "segmentos: " + initial);
+
+		for (OrderIntakeJournal.IntakeEntry entry : entries.subList(0, 20)) {
+			journal.markDone(entry.orderId()).block();
+		}
+		int afterHalf = segments().size();
+		for (OrderIntakeJournal.IntakeEntry entry : entries.subList(20, 40)) {
+			journal.markDone(entry.orderId()).block();
+		}
+		int afterAll = segments().size();
+		journal.stop();
+
+		assertTrue(afterHalf < initial, "segmentos tras completar la mitad: " + afterHalf);
+		assertEquals(1, afterAll);
+		OrderIntakeJournal reopened = open();
+		assertEquals(0, reopened.pendingCount());
+		reopened.stop();
+	}
+
+	@Test
+	void concurrentAppendsShareGroupCommits() throws Exception {
+		OrderIntakeJournal journal = open();
+		List<Mono<OrderIntakeJournal.IntakeEntry>> appends = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			appends.add(journal.append(USER_ID, order("orden " + i)));
+		}
+		Mono.when(appends).block();
+
+		long commits = (long) journal.getMetrics().get("groupCommits");
+		double averageBatch = (double) journal.getMetrics().get("averageBatch");
+		int pending = journal.pendingCount();
+		journal.stop();
+
+		assertEquals(1000, pending);
+		assertTrue(commits < 1000, "group commits: " + commits);
+		assertTrue(averageBatch > 1.0, "lote promedio: " + averageBatch);
+		OrderIntakeJournal reopened = open();
+		assertEquals(1000, reopened.pendingCount());
+		reopened.stop();
+	}
+
+	private OrderIntakeJournal open() throws IOException {
+		return new OrderIntakeJournal(directory.toString(), 1, 10_000);
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().startsWith("intake-")).sorted().toList();
+		}
+	}
+
+	private static CreateOrderDTO order(String notes) {
+		return new CreateOrderDTO("Av. Providencia 1234", notes, List.of(new CreateOrderItemDTO(PRODUCT_ID, 3)));
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.pokestore.poke_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PostgrestQueryTest {
+
+	@Test
+	void encodesFilterValues() {
+		String path = PostgrestQuery.from("users")
+				.select("id", "email")
+				.eq("email", "ash+ketchum@pokestore.cl")
+				.ilikeContains("name", "mr mime")
+				.limit(1)
+				.toPath();
+
+		assertEquals("/rest/v1/users?select=id%2Cemail&email=eq.ash%2Bketchum%40pokestore.cl"
+				+ "&name=ilike.*mr%20mime*&limit=1", path);
+	}
+
+	@Test
+	void filterValuesCannotInjectParameters() {
+		String query = PostgrestQuery.from("products").eq("name", "x&role=eq.admin").toQueryString();
+
+		assertEquals("name=eq.x%26role%3Deq.admin", query);
+	}
+
+	@Test
+	void quotesReservedCharactersInsideInLists() {
+		String query = PostgrestQuery.from("products")
+				.in("name", List.of("pikachu", "mr. mime", "a,b", "say \"hi\"", "c:\\d"))
+				.toQueryString();
+
+		String decoded = URLDecoder.decode(query, StandardCharsets.UTF_8);
+		assertEquals("name=in.(pikachu,\"mr. mime\",\"a,b\",\"say \\\"hi\\\"\",\"c:\\\\d\")", decoded);
+	}
+
+	@Test
+	void addsOrderLimitAndOffsetAfterFilters() {
+		String query = PostgrestQuery.from("orders")
+				.eq("status", "pending")
+				.orderBy("created_at", false)
+				.orderBy("id", true)
+				.limit(50)
+				.offset(100)
+				.toQueryString();
+
+		assertEquals("status=eq.pending&order=created_at.desc%2Cid.asc&limit=50&offset=100", query);
+	}
+
+	@Test
+	void copyIsIndependentOfTheOriginal() {
+		PostgrestQuery base = PostgrestQuery.from("orders").eq("user_id", "42");
+		PostgrestQuery page = base.copy().gt("id", "abc").limit(10);
+
+		assertEquals("user_id=eq.42", base.toQueryString());
+		assertEquals("user_id=eq.42&id=gt.abc&limit=10", page.toQueryString());
+	}
+
+	@Test
+	void allowsEmbeddedResourcesInSelect() {
+		String query = PostgrestQuery.from("orders").select("id", "items:order_items(id,quantity)").toQueryString();
+
+		assertEquals("select=id%2Citems%3Aorder_items%28id%2Cquantity%29", query);
+	}
+
+	@Test
+	void rejectsInvalidIdentifiers() {
+		assertThrows(IllegalArgumentException.class, () -> PostgrestQuery.from("users;drop"));
+		assertThrows(IllegalArgumentException.class, () -> PostgrestQuery.from("users").eq("email=eq.x&id", "1"));
+		assertThrows(IllegalArgumentException.class, () -> PostgrestQuery.from("users").orderBy("id desc", true));
+		assertThrows(IllegalArgumentException.class, () -> PostgrestQuery.from("users").select("id&role=admin"));
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.pokestore.poke_api.service;
+
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteOutcomeClassificationTest {
+
+	@Test
+	void errorsAfterSendingMayHaveBeenApplied() {
+		assertTrue(SupabaseResilience.mayHaveBeenApplied(new TimeoutException()));
+		assertTrue(SupabaseResilience.mayHaveBeenApplied(requestError(ReadTimeoutException.INSTANCE)));
+		assertTrue(SupabaseResilience.mayHaveBeenApplied(requestError(new IOException("Connection reset by peer"))));
+		assertTrue(SupabaseResilience.mayHaveBeenApplied(responseError(502)));
+		assertTrue(SupabaseResilience.mayHaveBeenApplied(responseError(504)));
+	}
+
+	@Test
+	void errorsBeforeSendingWereNotApplied() {
+		assertFalse(SupabaseResilience.mayHaveBeenApplied(requestError(new ConnectException("Connection refused"))));
+		assertFalse(SupabaseResilience.mayHaveBeenApplied(requestError(new UnknownHostException("supabase.invalid"))));
+		assertFalse(SupabaseResilience.mayHaveBeenApplied(responseError(429)));
+	}
+
+	private static WebClientRequestException requestError(Throwable cause) {
+		return new WebClientRequestException(cause, HttpMethod.POST, URI.create("http://localhost/rest/v1/orders"),
+				new HttpHeaders());
+	}
+
+	private static WebClientResponseException responseError(int status) {
+		return WebClientResponseException.create(HttpStatusCode.valueOf(status), "error", new HttpHeaders(), new byte[0],
+				null, null);
+	}
+}